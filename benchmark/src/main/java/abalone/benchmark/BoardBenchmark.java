@@ -0,0 +1,121 @@
+package abalone.benchmark;
+
+import abalone.Board;
+import abalone.Color;
+import abalone.Move;
+import abalone.ai.EvaluationCache;
+import abalone.ai.ItsOverAnakinIHaveTheHighGroundStrategy;
+import abalone.exceptions.InvalidMoveException;
+import abalone.exceptions.MarbleKilledException;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of the operations of the board, moves and strategies that the
+ * AI spends its time in, on each of the {@link Positions}. Every benchmark
+ * that takes a move goes through all moves of white in the position, so its
+ * time is per position, not per move.
+ *
+ * @authors Bozhidar Petrov, Daan Pluister
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+    @Param({Positions.OPENING, Positions.MIDGAME, Positions.ENDGAME})
+    private String position;
+
+    private Board board;
+    private ArrayList<Move> moves;
+    private Evaluator evaluator;
+    private Evaluator cachedEvaluator;
+
+    /**
+     * Gives access to the evaluation of the strategy.
+     */
+    private static class Evaluator extends ItsOverAnakinIHaveTheHighGroundStrategy {
+        double evaluate(Board board, Color color) {
+            return evaluateBoard(board, color);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        board = Positions.make(position);
+        evaluator = new Evaluator();
+        cachedEvaluator = new Evaluator();
+        cachedEvaluator.setEvaluationCache(new EvaluationCache(EvaluationCache.DEFAULT_SIZE));
+        moves = evaluator.makeMovesList(board, Color.WHITE);
+    }
+
+    @Benchmark
+    public Board deepCopy() {
+        return board.deepCopy();
+    }
+
+    @Benchmark
+    public Board makeMapOfColors() {
+        board.makeMapOfColors();
+        return board;
+    }
+
+    @Benchmark
+    public void isValidMove(Blackhole blackhole) throws InvalidMoveException {
+        for (Move move : moves) {
+            move.isValidMove();
+            blackhole.consume(move);
+        }
+    }
+
+    /**
+     * Performs every move on its own copy of the board, so it includes the
+     * time of {@link #deepCopy()} once per move.
+     */
+    @Benchmark
+    public void perform(Blackhole blackhole) throws InvalidMoveException {
+        for (Move move : moves) {
+            Board copy = board.deepCopy();
+            try {
+                move.deepCopy(copy).perform();
+            } catch (MarbleKilledException e) {
+                // a marble pushed off is fine
+            }
+            blackhole.consume(copy);
+        }
+    }
+
+    @Benchmark
+    public ArrayList<Move> makeMovesList() {
+        return evaluator.makeMovesList(board, Color.WHITE);
+    }
+
+    @Benchmark
+    public double evaluateBoard() {
+        return evaluator.evaluate(board, Color.WHITE);
+    }
+
+    /**
+     * Evaluates with a cache, so after the first call it is a cache hit.
+     */
+    @Benchmark
+    public double evaluateBoardCached() {
+        return cachedEvaluator.evaluate(board, Color.WHITE);
+    }
+}
@@ -0,0 +1,72 @@
+package abalone.benchmark;
+
+import abalone.Board;
+import abalone.Color;
+import abalone.Marble;
+
+/**
+ * The fixed positions the benchmarks are run on. They are written out field
+ * by field, so they stay the same when the way moves are generated or chosen
+ * changes. The midgame and endgame are from a 2 player game of random moves
+ * that push off a marble when they can, after 40 and 130 plies.
+ *
+ * @authors Bozhidar Petrov, Daan Pluister
+ */
+public final class Positions {
+
+    /** The starting position, white to move. */
+    public static final String OPENING = "opening";
+
+    /** All marbles still on the board, pieces mixed in the center, white to move. */
+    public static final String MIDGAME = "midgame";
+
+    /** White 13 and black 10 marbles left, white to move. */
+    public static final String ENDGAME = "endgame";
+
+    private static final String MIDGAME_WHITE = "A4 B1 B3 B4 C1 C2 C3 C4 D3 D4 D5 D6 D7 E8";
+    private static final String MIDGAME_BLACK = "E6 F3 F4 F9 G5 G6 G7 G8 G9 H8 H9 I6 I7 I8";
+    private static final String ENDGAME_WHITE = "A1 A5 B5 C4 C5 D4 D6 D8 E1 E2 F4 F7 F9";
+    private static final String ENDGAME_BLACK = "C7 D5 E7 F2 F6 G5 G7 H7 H8 I6";
+
+    private Positions() {
+    }
+
+    /**
+     * Makes a new board with one of the positions.
+     * @param name OPENING, MIDGAME or ENDGAME
+     */
+    public static Board make(String name) {
+        Board board = new Board(2);
+        switch (name) {
+            case OPENING:
+                break;
+            case MIDGAME:
+                place(board, MIDGAME_WHITE, MIDGAME_BLACK);
+                break;
+            case ENDGAME:
+                place(board, ENDGAME_WHITE, ENDGAME_BLACK);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown position: " + name);
+        }
+        board.setSideToMove(Color.WHITE);
+        return board;
+    }
+
+    /**
+     * Empties the board and puts the marbles of white and black on the given
+     * fields, like "A1 B2".
+     */
+    private static void place(Board board, String white, String black) {
+        board.reset();
+        place(board, white, Color.WHITE);
+        place(board, black, Color.BLACK);
+    }
+
+    private static void place(Board board, String fields, Color color) {
+        for (String field : fields.split(" ")) {
+            board.setField(board.getRowFromLetter(field.charAt(0)),
+                    board.getColFromLetter(field.charAt(1)), Marble.of(color));
+        }
+    }
+}
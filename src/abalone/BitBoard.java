@@ -0,0 +1,474 @@
+package abalone;
+
+import java.util.Arrays;
+
+/**
+ * Compact representation of the marbles on the board.
+ * Every one of the 61 valid fields gets an index (row by row, from low to high
+ * column) and every color gets a single long with one bit per field that holds
+ * a marble of that color. Together with the precomputed neighbor and shift
+ * tables for the six directions this is all that is needed to answer the
+ * questions {@link Board} is asked, so a position costs a few dozen bytes
+ * instead of a grid of Field and Marble objects.
+ * The geometry of lines is precomputed as well: the ray from every field to
+ * the edge in every direction, the direction and distance between any two
+ * fields on a line, and every group of two or three fields in a line, so that
+ * checking and generating moves needs no coordinate arithmetic.
+ *
+ * @authors Daan Pluister, Bozhidar Petrov
+ */
+public class BitBoard {
+
+    // -- Constants --------------------------------------------------
+
+    public static final int DIM = 5;
+    public static final int WIDTH = 2 * DIM - 1;
+
+    /**
+     * Number of valid fields on the board.
+     */
+    public static final int CELLS = WIDTH * WIDTH - DIM * (DIM - 1);
+
+    /**
+     * The six directions in the order (row, col): (1, 0), (-1, 0), (0, 1),
+     * (0, -1), (1, 1), (-1, -1). The opposite of direction d is d ^ 1.
+     */
+    public static final int DIRECTIONS = 6;
+    private static final int[] ROW_STEP = {1, -1, 0, 0, 1, -1};
+    private static final int[] COL_STEP = {0, 0, 1, -1, 1, -1};
+
+    private static final Color[] COLORS = Color.values();
+
+    /** Index of every (row, col) pair, -1 if it is not a valid field. */
+    private static final int[][] INDEX = new int[WIDTH][WIDTH];
+    private static final int[] ROW = new int[CELLS];
+    private static final int[] COL = new int[CELLS];
+
+    /** Index of the neighbor of a field in a direction, -1 if off the board. */
+    private static final int[][] NEIGHBOR = new int[DIRECTIONS][CELLS];
+
+    /** Mask of the fields that have a neighbor in a direction. */
+    private static final long[] HAS_NEIGHBOR = new long[DIRECTIONS];
+
+    /** Mask of the fields in a row. */
+    private static final long[] ROW_MASK = new long[WIDTH];
+
+    /**
+     * Index difference between a field and its neighbor in a direction. This is
+     * constant within a row, so a whole row can be shifted at once.
+     */
+    private static final int[][] SHIFT = new int[DIRECTIONS][WIDTH];
+
+    /** Direction of a (row, col) step, indexed by [rowStep + 1][colStep + 1]. */
+    private static final int[][] STEP_DIRECTION = {{5, 1, -1}, {3, -1, 2}, {-1, 0, 4}};
+
+    /** The fields from the neighbor of a field up to the edge of the board. */
+    private static final int[][][] RAY = new int[DIRECTIONS][CELLS][];
+
+    /**
+     * For every pair of fields (from, to) on a line: the direction from from to
+     * to, and the number of steps between them. Both are -1 if the fields are
+     * not on a line; a field is on a line with itself at distance 0.
+     */
+    private static final int[][] LINE_DIRECTION = new int[CELLS][CELLS];
+    private static final int[][] LINE_DISTANCE = new int[CELLS][CELLS];
+
+    /**
+     * Mask of the fields from tail to head if they form a group of at most
+     * MAX_GROUP marbles in a line, 0 otherwise.
+     */
+    private static final long[][] GROUP_MASK = new long[CELLS][CELLS];
+
+    /** Largest number of marbles that can move together. */
+    public static final int MAX_GROUP = 3;
+
+    /** All groups of 2 and of 3 fields in a line, as masks. */
+    private static final long[] GROUPS_OF_2;
+    private static final long[] GROUPS_OF_3;
+    /**
+     * The two end fields of every group of 3 fields in a line, as masks, so
+     * without the field in the middle.
+     */
+    private static final long[] SPANS_OF_3;
+    /** The groups of 2 and the spans of 3 that contain each field. */
+    private static final long[][] GROUPS_OF_2_AT = new long[CELLS][];
+    private static final long[][] SPANS_OF_3_AT = new long[CELLS][];
+
+    /**
+     * Square of the ring around the center each field is in, so 0 for the
+     * center and (DIM - 1)^2 for the outer rim.
+     */
+    private static final int[] CENTER_DISTANCE = new int[CELLS];
+
+    static {
+        int cell = 0;
+        for (int row = 0; row < WIDTH; row++) {
+            for (int col = 0; col < WIDTH; col++) {
+                if (row - col >= DIM || row - col <= -DIM) {
+                    INDEX[row][col] = -1;
+                } else {
+                    INDEX[row][col] = cell;
+                    ROW[cell] = row;
+                    COL[cell] = col;
+                    ROW_MASK[row] |= 1L << cell;
+                    int rowDistance = row - (DIM - 1);
+                    int colDistance = col - (DIM - 1);
+                    int ring = rowDistance * colDistance >= 0
+                            ? Math.max(Math.abs(rowDistance), Math.abs(colDistance))
+                            : Math.abs(rowDistance) + Math.abs(colDistance);
+                    CENTER_DISTANCE[cell] = ring * ring;
+                    cell++;
+                }
+            }
+        }
+        for (int dir = 0; dir < DIRECTIONS; dir++) {
+            for (int i = 0; i < CELLS; i++) {
+                int neighbor = index(ROW[i] + ROW_STEP[dir], COL[i] + COL_STEP[dir]);
+                NEIGHBOR[dir][i] = neighbor;
+                if (neighbor != -1) {
+                    HAS_NEIGHBOR[dir] |= 1L << i;
+                    SHIFT[dir][ROW[i]] = neighbor - i;
+                }
+            }
+        }
+        for (int from = 0; from < CELLS; from++) {
+            for (int to = 0; to < CELLS; to++) {
+                LINE_DIRECTION[from][to] = -1;
+                LINE_DISTANCE[from][to] = -1;
+            }
+            LINE_DISTANCE[from][from] = 0;
+            GROUP_MASK[from][from] = 1L << from;
+        }
+        int groupsOf2 = 0;
+        int groupsOf3 = 0;
+        for (int dir = 0; dir < DIRECTIONS; dir++) {
+            for (int from = 0; from < CELLS; from++) {
+                int length = 0;
+                for (int to = NEIGHBOR[dir][from]; to != -1; to = NEIGHBOR[dir][to]) {
+                    length++;
+                }
+                RAY[dir][from] = new int[length];
+                long mask = 1L << from;
+                int distance = 0;
+                for (int to = NEIGHBOR[dir][from]; to != -1; to = NEIGHBOR[dir][to]) {
+                    RAY[dir][from][distance++] = to;
+                    mask |= 1L << to;
+                    LINE_DIRECTION[from][to] = dir;
+                    LINE_DISTANCE[from][to] = distance;
+                    if (distance < MAX_GROUP) {
+                        GROUP_MASK[from][to] = mask;
+                        if (from < to && distance == 1) {
+                            groupsOf2++;
+                        } else if (from < to) {
+                            groupsOf3++;
+                        }
+                    }
+                }
+            }
+        }
+        GROUPS_OF_2 = new long[groupsOf2];
+        GROUPS_OF_3 = new long[groupsOf3];
+        SPANS_OF_3 = new long[groupsOf3];
+        groupsOf2 = 0;
+        groupsOf3 = 0;
+        for (int from = 0; from < CELLS; from++) {
+            for (int to = from + 1; to < CELLS; to++) {
+                if (LINE_DISTANCE[from][to] == 1) {
+                    GROUPS_OF_2[groupsOf2++] = GROUP_MASK[from][to];
+                } else if (LINE_DISTANCE[from][to] == 2) {
+                    SPANS_OF_3[groupsOf3] = 1L << from | 1L << to;
+                    GROUPS_OF_3[groupsOf3++] = GROUP_MASK[from][to];
+                }
+            }
+        }
+        for (int i = 0; i < CELLS; i++) {
+            long field = 1L << i;
+            GROUPS_OF_2_AT[i] = Arrays.stream(GROUPS_OF_2).filter(g -> (g & field) != 0).toArray();
+            SPANS_OF_3_AT[i] = Arrays.stream(SPANS_OF_3).filter(g -> (g & field) != 0).toArray();
+        }
+    }
+
+    // -- Instance variables -----------------------------------------
+
+    /** One mask per color, indexed by the ordinal of the color. */
+    private final long[] masks;
+    private long occupied;
+
+    // -- Constructors -----------------------------------------------
+
+    /**
+     * Creates an empty bitboard.
+     */
+    public BitBoard() {
+        masks = new long[COLORS.length];
+    }
+
+    /**
+     * Creates a copy of the given bitboard.
+     */
+    public BitBoard(BitBoard other) {
+        masks = other.masks.clone();
+        occupied = other.occupied;
+    }
+
+    // -- Geometry ---------------------------------------------------
+
+    /**
+     * Returns the index of the field (row, col).
+     *
+     * @return an index 0 <= index < CELLS, or -1 if (row, col) is not a valid field
+     */
+    public static int index(int row, int col) {
+        if (row < 0 || row >= WIDTH || col < 0 || col >= WIDTH) {
+            return -1;
+        }
+        return INDEX[row][col];
+    }
+
+    /**
+     * Returns the row of the field with the given index.
+     */
+    public static int row(int cell) {
+        return ROW[cell];
+    }
+
+    /**
+     * Returns the column of the field with the given index.
+     */
+    public static int col(int cell) {
+        return COL[cell];
+    }
+
+    /**
+     * Returns the neighbor of a field in the given direction.
+     *
+     * @return the index of the neighbor, or -1 if it lies off the board
+     */
+    public static int neighbor(int cell, int dir) {
+        return NEIGHBOR[dir][cell];
+    }
+
+    /**
+     * Returns the direction of a (row, col) step.
+     *
+     * @return 0 <= direction < DIRECTIONS, or -1 if the step is not one of the six
+     */
+    public static int direction(int rowStep, int colStep) {
+        if (rowStep < -1 || rowStep > 1 || colStep < -1 || colStep > 1) {
+            return -1;
+        }
+        return STEP_DIRECTION[rowStep + 1][colStep + 1];
+    }
+
+    /**
+     * Returns the fields from the neighbor of a field in a direction up to the
+     * edge of the board, nearest first. The array should not be changed.
+     */
+    public static int[] ray(int cell, int dir) {
+        return RAY[dir][cell];
+    }
+
+    /**
+     * Returns the direction from one field to another on the same line.
+     *
+     * @return the direction, or -1 if the fields are not on a line or equal
+     */
+    public static int lineDirection(int from, int to) {
+        return LINE_DIRECTION[from][to];
+    }
+
+    /**
+     * Returns the number of steps from one field to another on the same line.
+     *
+     * @return the distance, or -1 if the fields are not on a line
+     */
+    public static int lineDistance(int from, int to) {
+        return LINE_DISTANCE[from][to];
+    }
+
+    /**
+     * Returns the mask of the fields from tail to head.
+     *
+     * @return the mask, or 0 if they are not on a line or more than
+     *     MAX_GROUP fields long
+     */
+    public static long groupMask(int tail, int head) {
+        return GROUP_MASK[tail][head];
+    }
+
+    /**
+     * Returns the masks of all groups of two neighboring fields. The array should
+     * not be changed.
+     */
+    public static long[] groupsOf2() {
+        return GROUPS_OF_2;
+    }
+
+    /**
+     * Returns the masks of all groups of three fields in a line. The array should
+     * not be changed.
+     */
+    public static long[] groupsOf3() {
+        return GROUPS_OF_3;
+    }
+
+    /**
+     * Returns the masks of the groups of two neighboring fields that contain a
+     * field. The array should not be changed.
+     */
+    public static long[] groupsOf2At(int cell) {
+        return GROUPS_OF_2_AT[cell];
+    }
+
+    /**
+     * Returns the masks of the two end fields of all groups of three fields in
+     * a line. The array should not be changed.
+     */
+    public static long[] spansOf3() {
+        return SPANS_OF_3;
+    }
+
+    /**
+     * Returns the masks of {@link #spansOf3()} that have a field at one of their
+     * ends. The array should not be changed.
+     */
+    public static long[] spansOf3At(int cell) {
+        return SPANS_OF_3_AT[cell];
+    }
+
+    /**
+     * Counts the groups that are completely inside a set of fields.
+     *
+     * @param groups masks of groups, like {@link #groupsOf2()} or
+     *     {@link #spansOf3()}
+     */
+    public static int countGroups(long set, long[] groups) {
+        int count = 0;
+        for (long group : groups) {
+            if ((set & group) == group) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the square of the ring around the center a field is in, 0 for the
+     * center and (DIM - 1)^2 for the outer rim.
+     */
+    public static int centerDistance(int cell) {
+        return CENTER_DISTANCE[cell];
+    }
+
+    /**
+     * Query.
+     */
+    public static int rowStep(int dir) {
+        return ROW_STEP[dir];
+    }
+
+    /**
+     * Query.
+     */
+    public static int colStep(int dir) {
+        return COL_STEP[dir];
+    }
+
+    /**
+     * Moves every field of a set one step in the given direction. Fields that
+     * would leave the board are dropped.
+     *
+     * @param set mask of fields
+     * @return mask of the neighbors of the fields in set
+     */
+    public static long shift(long set, int dir) {
+        long movable = set & HAS_NEIGHBOR[dir];
+        long result = 0;
+        for (int row = 0; row < WIDTH; row++) {
+            long part = movable & ROW_MASK[row];
+            if (part != 0) {
+                int offset = SHIFT[dir][row];
+                result |= offset >= 0 ? part << offset : part >>> -offset;
+            }
+        }
+        return result;
+    }
+
+    // -- Queries ----------------------------------------------------
+
+    /**
+     * Returns the color of the marble on a field.
+     *
+     * @return the color, or null if the field is empty
+     */
+    public Color getColor(int cell) {
+        long bit = 1L << cell;
+        if ((occupied & bit) == 0) {
+            return null;
+        }
+        for (int i = 0; i < masks.length; i++) {
+            if ((masks[i] & bit) != 0) {
+                return COLORS[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Query.
+     */
+    public boolean isEmpty(int cell) {
+        return (occupied & (1L << cell)) == 0;
+    }
+
+    /**
+     * Returns the mask of all fields containing a marble of the given color.
+     */
+    public long getMask(Color color) {
+        return masks[color.ordinal()];
+    }
+
+    /**
+     * Returns the mask of all fields containing a marble.
+     */
+    public long getOccupied() {
+        return occupied;
+    }
+
+    /**
+     * Returns the number of marbles of the given color.
+     */
+    public int count(Color color) {
+        return Long.bitCount(masks[color.ordinal()]);
+    }
+
+    // -- Commands ---------------------------------------------------
+
+    /**
+     * Puts a marble of the given color on a field, or empties it if color is null.
+     */
+    void set(int cell, Color color) {
+        long bit = 1L << cell;
+        if ((occupied & bit) != 0) {
+            for (int i = 0; i < masks.length; i++) {
+                masks[i] &= ~bit;
+            }
+        }
+        if (color == null) {
+            occupied &= ~bit;
+        } else {
+            masks[color.ordinal()] |= bit;
+            occupied |= bit;
+        }
+    }
+
+    /**
+     * Empties all fields.
+     */
+    void clear() {
+        for (int i = 0; i < masks.length; i++) {
+            masks[i] = 0;
+        }
+        occupied = 0;
+    }
+}
@@ -3,6 +3,8 @@ package abalone;
 import abalone.exceptions.InvalidMoveException;
 import abalone.exceptions.MarbleKilledException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -19,15 +21,40 @@ public class Board {
 
     private static final String MOVE_PATTERN = "^([A-Ia-i][1-9][ ,.]){2}[A-Ia-i][1-9]$";
 
-    private static final int DIM = 5;
+    private static final int DIM = BitBoard.DIM;
     private static final int maxPush = 3;
-    private static final int WIDTH = 2 * DIM - 1;
+    private static final int WIDTH = BitBoard.WIDTH;
 
     // -- Instance variables -----------------------------------------
 
-    private Field[][] fields;
+    /** The marbles on the board. */
+    private BitBoard bits;
+    /** Field views of the valid positions, created when first asked for. */
+    private Field[] fields;
+    /** The fields of the marbles of each color, kept up to date on every change. */
+    private Map<Color, PieceList> pieces;
     private Map<Color, ArrayList<Field>> mapOfColors;
+    /** True if marbles moved since the map of colors was made. */
+    private boolean mapOfColorsChanged;
     private Color[][] teams;
+    /** Number of players the board was filled for, used for the turn order. */
+    private int numberOfPlayers = 2;
+    /** The color to move, null if not known. */
+    private Color sideToMove;
+    /** Zobrist hash of the marbles and the side to move, see {@link Zobrist}. */
+    private long hash;
+    /**
+     * Sum of {@link BitBoard#centerDistance(int)} over the marbles of each
+     * color, indexed by the ordinal of the color.
+     */
+    private int[] centerDistance;
+    /**
+     * Number of groups of 2 fields (see {@link BitBoard#groupsOf2()}) and of
+     * spans of 3 fields (see {@link BitBoard#spansOf3()}) that hold marbles of
+     * one color only, indexed by the ordinal of the color.
+     */
+    private int[] groupsOf2;
+    private int[] spansOf3;
 
     // -- Used for evaluating moves for strategies -------------------
 
@@ -43,7 +70,15 @@ public class Board {
      * Creates an empty board.
      */
     public Board() {
-        this.fields = new Field[WIDTH][WIDTH];
+        this.bits = new BitBoard();
+        this.fields = new Field[BitBoard.CELLS];
+        this.pieces = new EnumMap<Color, PieceList>(Color.class);
+        for (Color color : Color.values()) {
+            pieces.put(color, new PieceList());
+        }
+        this.centerDistance = new int[Color.values().length];
+        this.groupsOf2 = new int[Color.values().length];
+        this.spansOf3 = new int[Color.values().length];
         this.reset();
     }
 
@@ -56,7 +91,6 @@ public class Board {
     public Board(int playerCount) {
         this();
         this.reset(playerCount);
-        this.makeMapOfColors();
     }
 
     // -- Commands ---------------------------------------------------
@@ -116,16 +150,20 @@ public class Board {
     }
 
     /**
-     * Creates a deep copy of this field with new fields but the same marbles.
+     * Creates a deep copy of this board with new fields but the same marbles.
      */
     public Board deepCopy() {
         Board copy = new Board();
-        for (int i = 0; i < WIDTH; i++) {
-            for (int j = 0; j < WIDTH; j++) {
-                copy.fields[i][j].setMarble(this.fields[i][j].getMarble());
-            }
+        copy.bits = new BitBoard(this.bits);
+        for (Color color : Color.values()) {
+            copy.pieces.put(color, new PieceList(this.pieces.get(color)));
         }
-        copy.makeMapOfColors();
+        copy.numberOfPlayers = this.numberOfPlayers;
+        copy.sideToMove = this.sideToMove;
+        copy.hash = this.hash;
+        copy.centerDistance = this.centerDistance.clone();
+        copy.groupsOf2 = this.groupsOf2.clone();
+        copy.spansOf3 = this.spansOf3.clone();
         return copy;
     }
 
@@ -139,7 +177,7 @@ public class Board {
      */
     /* @pure */
     public boolean isField(int row, int col) {
-        return row < WIDTH && row >= 0 && col < WIDTH && col >= 0 && fields[row][col].isValid();
+        return BitBoard.index(row, col) != -1;
     }
 
     /**
@@ -148,11 +186,23 @@ public class Board {
      * @return will return null if field doesn't exist
      */
     public Field getField(int row, int col) {
-        if (isField(row, col)) {
-            return fields[row][col];
-        } else {
+        int cell = BitBoard.index(row, col);
+        if (cell == -1) {
             return null;
         }
+        if (fields[cell] == null) {
+            fields[cell] = new Field(this, row, col);
+        }
+        return fields[cell];
+    }
+
+    /**
+     * Get Field with given index in the bitboard.
+     * 
+     * @requires 0 <= cell < BitBoard.CELLS
+     */
+    public Field getField(int cell) {
+        return getField(BitBoard.row(cell), BitBoard.col(cell));
     }
 
     /*
@@ -167,7 +217,7 @@ public class Board {
      * @return the marble on the field
      */
     public Marble getFieldContent(int row, int col) {
-        return getField(row, col).getMarble();
+        return Marble.of(bits.getColor(BitBoard.index(row, col)));
     }
 
     /**
@@ -179,7 +229,7 @@ public class Board {
      */
     /* @pure */
     public boolean isEmptyField(int row, int col) {
-        return isField(row, col) && getFieldContent(row, col) == null;
+        return isField(row, col) && bits.isEmpty(BitBoard.index(row, col));
     }
 
     /**
@@ -228,31 +278,28 @@ public class Board {
     }
 
     /**
-     * empties board and makes a new mapOfColors afterwards.
+     * empties board.
      */
     public void reset() {
-        boolean valid;
-        for (int i = 0; i < WIDTH; i++) {
-            for (int j = 0; j < WIDTH; j++) {
-                if (i - j >= DIM || i - j <= -DIM) {
-                    valid = false;
-                } else {
-                    valid = true;
-                }
-                fields[i][j] = new Field(valid, i, j);
-            }
+        bits.clear();
+        for (PieceList list : pieces.values()) {
+            list.clear();
         }
-        this.makeMapOfColors();
+        Arrays.fill(centerDistance, 0);
+        Arrays.fill(groupsOf2, 0);
+        Arrays.fill(spansOf3, 0);
+        mapOfColorsChanged = true;
+        hash = Zobrist.sideKey(sideToMove);
     }
 
     /**
-     * Empties board and fills it with marbles and makes a new mapOfColors
-     * afterwards.
+     * Empties board and fills it with marbles.
      * 
      * @param numberOfPlayers indicating how many players are playing
      */
     public void reset(int numberOfPlayers) {
-        Marble m;
+        this.numberOfPlayers = numberOfPlayers;
+        Color color;
         int i180;
         int j180;
         int imirror;
@@ -265,33 +312,37 @@ public class Board {
                     for (int j = 0; j < WIDTH; j++) {
                         i180 = -1 * (i - (DIM - 1)) + (DIM - 1);
                         j180 = -1 * (j - (DIM - 1)) + (DIM - 1);
-                        if (fields[i][j].isValid()
+                        if (isField(i, j)
                                 && (i <= DIM / 2 - 1 || (i == DIM / 2 + 1 - 1 && DIM / 2 - 1 < j
                                 && j <= DIM - 1))) {
-                            m = new Marble(Color.WHITE);
-                        } else if (fields[i][j].isValid() && (i180 <= DIM / 2 - 1
+                            color = Color.WHITE;
+                        } else if (isField(i, j) && (i180 <= DIM / 2 - 1
                                 || (i180 == DIM / 2 + 1 - 1 && DIM / 2 - 1 < j180 && j180 <= DIM - 1))) {
-                            m = new Marble(Color.BLACK);
+                            color = Color.BLACK;
                         } else {
-                            m = null;
+                            color = null;
+                        }
+                        if (isField(i, j)) {
+                            put(BitBoard.index(i, j), color);
                         }
-                        fields[i][j].setMarble(m);
                     }
                 }
                 break;
             case 3:
                 for (int i = 0; i < WIDTH; i++) {
                     for (int j = 0; j < WIDTH; j++) {
-                        if (fields[i][j].isValid() && (i < DIM / 2)) {
-                            m = new Marble(Color.BLUE);
-                        } else if (fields[i][j].isValid() && (i > j + DIM / 2)) {
-                            m = new Marble(Color.WHITE);
-                        } else if (fields[i][j].isValid() && (j > WIDTH - 1 - DIM / 2)) {
-                            m = new Marble(Color.BLACK);
+                        if (isField(i, j) && (i < DIM / 2)) {
+                            color = Color.BLUE;
+                        } else if (isField(i, j) && (i > j + DIM / 2)) {
+                            color = Color.WHITE;
+                        } else if (isField(i, j) && (j > WIDTH - 1 - DIM / 2)) {
+                            color = Color.BLACK;
                         } else {
-                            m = null;
+                            color = null;
+                        }
+                        if (isField(i, j)) {
+                            put(BitBoard.index(i, j), color);
                         }
-                        fields[i][j].setMarble(m);
                     }
                 }
                 break;
@@ -304,25 +355,26 @@ public class Board {
                         jmirror = i;
                         imirror180 = j180;
                         jmirror180 = i180;
-                        if (fields[i][j].isValid() && extracted(i, j)) {
-                            m = new Marble(Color.BLUE);
-                        } else if (fields[i][j].isValid() && extracted(i180, j180)) {
-                            m = new Marble(Color.RED);
-                        } else if (fields[i][j].isValid() && extracted(imirror, jmirror)) {
-                            m = new Marble(Color.WHITE);
-                        } else if (fields[i][j].isValid() && extracted(imirror180, jmirror180)) {
-                            m = new Marble(Color.BLACK);
+                        if (isField(i, j) && extracted(i, j)) {
+                            color = Color.BLUE;
+                        } else if (isField(i, j) && extracted(i180, j180)) {
+                            color = Color.RED;
+                        } else if (isField(i, j) && extracted(imirror, jmirror)) {
+                            color = Color.WHITE;
+                        } else if (isField(i, j) && extracted(imirror180, jmirror180)) {
+                            color = Color.BLACK;
                         } else {
-                            m = null;
+                            color = null;
+                        }
+                        if (isField(i, j)) {
+                            put(BitBoard.index(i, j), color);
                         }
-                        fields[i][j].setMarble(m);
                     }
                 }
                 break;
             default:
                 break;
         }
-        this.makeMapOfColors();
     }
 
     /**
@@ -348,7 +400,10 @@ public class Board {
      * @param m   the marble to be placed
      */
     public void setField(int row, int col, Marble m) {
-        fields[row][col].setMarble(m);
+        int cell = BitBoard.index(row, col);
+        if (cell != -1) {
+            put(cell, m == null ? null : m.getColor());
+        }
     }
 
     /**
@@ -364,32 +419,214 @@ public class Board {
      * Performs a move.
      */
     public void move(Move move) throws InvalidMoveException, MarbleKilledException {
-        move.perform();
+        try {
+            move.perform();
+        } catch (MarbleKilledException e) {
+            nextSideToMove();
+            throw e;
+        }
+        nextSideToMove();
+    }
+
+    /**
+     * Performs a move on this board and returns a record with which it can be
+     * taken back using {@link #unmakeMove(UndoRecord)}.
+     * 
+     * @requires move.isValidMove() succeeded on this board
+     */
+    public UndoRecord makeMove(Move move) {
+        UndoRecord undo = new UndoRecord();
+        makeMove(move, undo);
+        return undo;
+    }
+
+    /**
+     * Performs a move on this board without checking it, and records the fields
+     * it changes in undo. Only the touched fields are changed, so strategies can
+     * simulate a move in place instead of on a deep copy. Like a simulated move,
+     * marbleKilled is set to whether a marble was pushed off the board.
+     * If the move is along the axis, the marbles in front of the selection are
+     * pushed one field further, starting with the one in front.
+     * Otherwise every marble of the selection is moved separately.
+     * 
+     * @param move the move to perform
+     * @param undo the record to fill, its previous content is discarded
+     * @requires move.isValidMove() succeeded on this board
+     */
+    public void makeMove(Move move, UndoRecord undo) {
+        makeMove(BitBoard.index(move.getRowTail(), move.getColTail()),
+                BitBoard.index(move.getRowHead(), move.getColHead()), move.getDirection(), undo);
+    }
+
+    /**
+     * Performs a packed move (see {@link PackedMove}) on this board without
+     * checking it, like {@link #makeMove(Move, UndoRecord)}.
+     * 
+     * @requires move was generated by {@link MoveGenerator} for this board
+     */
+    public void makeMove(int move, UndoRecord undo) {
+        makeMove(PackedMove.getTail(move), PackedMove.getHead(move),
+                PackedMove.getDirection(move), undo);
+    }
+
+    /**
+     * Performs the move of the selection from tail to head in direction dir.
+     */
+    private void makeMove(int tail, int head, int dir, UndoRecord undo) {
+        undo.clear(marbleKilled, sideToMove);
+        long selection = BitBoard.groupMask(tail, head);
+        int dest = BitBoard.neighbor(tail, dir);
+        if (tail == head || BitBoard.lineDirection(tail, head) == dir) {
+            // the tail is the back of the line; record the line up to the first empty field
+            int cell = tail;
+            int next = dest;
+            undo.add(cell, bits.getColor(cell));
+            while (next != -1 && !bits.isEmpty(next)) {
+                cell = next;
+                undo.add(cell, bits.getColor(cell));
+                next = BitBoard.neighbor(cell, dir);
+            }
+            int last = undo.size() - 1;
+            if (next == -1) {
+                undo.setEjected(undo.getColor(last));
+            } else {
+                undo.add(next, null);
+                put(next, undo.getColor(last));
+            }
+            for (int i = last; i > 0; i--) {
+                put(undo.getCell(i), undo.getColor(i - 1));
+            }
+            put(tail, null);
+        } else {
+            while (selection != 0) {
+                int cell = Long.numberOfTrailingZeros(selection);
+                selection &= selection - 1;
+                int next = BitBoard.neighbor(cell, dir);
+                Color color = bits.getColor(cell);
+                undo.add(cell, color);
+                undo.add(next, null);
+                put(next, color);
+                put(cell, null);
+            }
+        }
+        marbleKilled = undo.getEjected() != null;
+        nextSideToMove();
+    }
+
+    /**
+     * Takes back a move made with {@link #makeMove(Move, UndoRecord)}. Moves
+     * must be taken back in the reverse order in which they were made.
+     * 
+     * @param undo the record filled by the move
+     */
+    public void unmakeMove(UndoRecord undo) {
+        for (int i = undo.size() - 1; i >= 0; i--) {
+            put(undo.getCell(i), undo.getColor(i));
+        }
+        marbleKilled = undo.getMarbleKilled();
+        setSideToMove(undo.getSideToMove());
+    }
+
+    /**
+     * Sets the color to move, which is part of the hash of the position.
+     * 
+     * @param color the color to move, null if not known
+     */
+    public void setSideToMove(Color color) {
+        hash ^= Zobrist.sideKey(sideToMove) ^ Zobrist.sideKey(color);
+        sideToMove = color;
+    }
+
+    /**
+     * Passes the turn to the next color, if the side to move is known.
+     */
+    private void nextSideToMove() {
+        if (sideToMove != null) {
+            setSideToMove(sideToMove.next(numberOfPlayers));
+        }
+    }
+
+    /**
+     * Moves the marble on field from to the empty field to.
+     */
+    void moveMarble(int from, int to) {
+        put(to, bits.getColor(from));
+        put(from, null);
+    }
+
+    /**
+     * Removes the marble on a field, for when it is pushed off the board.
+     */
+    void removeMarble(int cell) {
+        put(cell, null);
+    }
+
+    /**
+     * Puts a marble of the given color on a field, or empties it if color is
+     * null. Every change of the board goes through here, so that the bitboard,
+     * the lists of pieces, the distances from the center, the counts of groups
+     * and the hash stay in sync.
+     */
+    private void put(int cell, Color color) {
+        Color previous = bits.getColor(cell);
+        if (previous == color) {
+            return;
+        }
+        if (previous != null) {
+            pieces.get(previous).remove(cell);
+            centerDistance[previous.ordinal()] -= BitBoard.centerDistance(cell);
+            countGroupsAt(cell, previous, -1);
+        }
+        bits.set(cell, color);
+        if (color != null) {
+            pieces.get(color).add(cell);
+            centerDistance[color.ordinal()] += BitBoard.centerDistance(cell);
+            countGroupsAt(cell, color, 1);
+        }
+        hash ^= Zobrist.fieldKey(cell, previous) ^ Zobrist.fieldKey(cell, color);
+        mapOfColorsChanged = true;
+    }
+
+    /**
+     * Adds change to the counts of color for every group of 2 and span of 3
+     * through a field that holds only marbles of color. Called while the field holds a marble of
+     * color, so before it is removed and after it is added.
+     */
+    private void countGroupsAt(int cell, Color color, int change) {
+        long mask = bits.getMask(color);
+        for (long group : BitBoard.groupsOf2At(cell)) {
+            if ((mask & group) == group) {
+                groupsOf2[color.ordinal()] += change;
+            }
+        }
+        for (long span : BitBoard.spansOf3At(cell)) {
+            if ((mask & span) == span) {
+                spansOf3[color.ordinal()] += change;
+            }
+        }
     }
 
     /**
      * Makes a map of colors. This map has colors as keys and lists of fields as
      * entries. A list contains all fields containing marbles of the given color.
-     * This method should run when the board is set up and whenever a move is
-     * performed.
+     * The board keeps its lists of pieces up to date itself, so this is only
+     * needed by users of {@link #getMapOfColors()}, which calls it when marbles
+     * have moved.
      */
     public void makeMapOfColors() {
         mapOfColors = new HashMap<Color, ArrayList<Field>>();
         ArrayList<Field> fieldArray;
-        for (Field[] ff : fields) {
-            for (Field f : ff) {
-                if (f.getMarble() != null) {
-                    Color color = f.getMarble().getColor();
-                    if (mapOfColors.containsKey(color)) {
-                        mapOfColors.get(color).add(f);
-                    } else {
-                        fieldArray = new ArrayList<Field>();
-                        fieldArray.add(f);
-                        mapOfColors.put(color, fieldArray);
-                    }
+        for (Color color : Color.values()) {
+            PieceList list = pieces.get(color);
+            if (list.size() > 0) {
+                fieldArray = new ArrayList<Field>(list.size());
+                for (int i = 0; i < list.size(); i++) {
+                    fieldArray.add(getField(list.get(i)));
                 }
+                mapOfColors.put(color, fieldArray);
             }
         }
+        mapOfColorsChanged = false;
     }
 
     /**
@@ -451,9 +688,76 @@ public class Board {
     }
 
     /**
-     * Query.
+     * Returns the Zobrist hash of the position: the marbles on the board and
+     * the side to move. Two boards with the same position have the same hash,
+     * and it is kept up to date by every change of the board.
+     */
+    public long hash() {
+        return hash;
+    }
+
+    /**
+     * Returns the color to move, null if not known.
+     */
+    public Color getSideToMove() {
+        return sideToMove;
+    }
+
+    /**
+     * Returns the bitboard holding the marbles of this board. Changes should go
+     * through the board so that the map of colors stays up to date.
+     */
+    public BitBoard getBitBoard() {
+        return bits;
+    }
+
+    /**
+     * Returns the fields of the marbles of a color, in increasing index order.
+     * The list is updated by the board and should not be changed.
+     */
+    public PieceList getPieces(Color color) {
+        return pieces.get(color);
+    }
+
+    /**
+     * Returns the number of marbles of a color on the board.
+     */
+    public int countMarbles(Color color) {
+        return pieces.get(color).size();
+    }
+
+    /**
+     * Returns the sum of {@link BitBoard#centerDistance(int)} over the marbles
+     * of a color. It is kept up to date by every change of the board.
+     */
+    public int getCenterDistance(Color color) {
+        return centerDistance[color.ordinal()];
+    }
+
+    /**
+     * Returns the number of groups of two neighboring fields that both hold a
+     * marble of a color. It is kept up to date by every change of the board.
+     */
+    public int countGroupsOf2(Color color) {
+        return groupsOf2[color.ordinal()];
+    }
+
+    /**
+     * Returns the number of pairs of marbles of a color that are the two ends
+     * of a group of three fields in a line, whatever is in the middle. It is
+     * kept up to date by every change of the board.
+     */
+    public int countSpansOf3(Color color) {
+        return spansOf3[color.ordinal()];
+    }
+
+    /**
+     * Query. The map is made again if marbles have moved since it was made.
      */
     public Map<Color, ArrayList<Field>> getMapOfColors() {
+        if (mapOfColorsChanged) {
+            makeMapOfColors();
+        }
         return mapOfColors;
     }
 
@@ -476,12 +780,27 @@ public class Board {
      */
     public String getNumberOfMarbles() {
         String s = "";
-        for (Color c : mapOfColors.keySet()) {
-            s += c.toString() + String.valueOf(mapOfColors.get(c).size());
+        for (Color c : getMapOfColors().keySet()) {
+            s += c.toString() + String.valueOf(getMapOfColors().get(c).size());
         }
         return s;
     }
 
+    /**
+     * Makes a string of the field (row, col) to be used in a TUI, the same
+     * way as {@link Field#toString()}.
+     */
+    private String getFieldString(int row, int col) {
+        if (!isField(row, col)) {
+            return " ";
+        }
+        Color color = bits.getColor(BitBoard.index(row, col));
+        if (color == null) {
+            return "+";
+        }
+        return color.toString();
+    }
+
     /**
      * Query.
      */
@@ -496,7 +815,7 @@ public class Board {
             // add column index in row
             line = line + getRowLetter(i) + "  ";
             for (int j = 0; j < WIDTH; j++) {
-                line += fields[i][j].toString() + " ";
+                line += getFieldString(i, j) + " ";
             }
             full += line + "\n";
         }
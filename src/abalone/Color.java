@@ -27,4 +27,50 @@ public enum Color {
         }
     }
 
+    /**
+     * Return next color in rotation.
+     * @param numberOfPlayers the number of players in the game
+     * @return the next color; if color not valid for given number
+     *     of players, return null.
+     */
+    public Color next(int numberOfPlayers) {
+        switch (numberOfPlayers) {
+            case 2:
+                switch (this) {
+                    case WHITE:
+                        return BLACK;
+                    case BLACK:
+                        return WHITE;
+                    default:
+                        return null;    
+                }
+            case 3:
+                switch (this) {
+                    case BLUE:
+                        return BLACK;
+                    case BLACK:
+                        return WHITE;
+                    case WHITE: 
+                        return BLUE;
+                    default:
+                        return null;
+                }
+            case 4:
+                switch (this) {
+                    case BLACK:
+                        return RED;
+                    case RED:
+                        return WHITE;
+                    case WHITE:
+                        return BLUE;
+                    case BLUE:
+                        return BLACK;
+                    default:
+                        return null;
+                }
+            default:
+                return null;
+        }
+    }
+
 }
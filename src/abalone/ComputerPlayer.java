@@ -1,9 +1,12 @@
 package abalone;
 
+import abalone.ai.SearchLimits;
 import abalone.ai.Strategy;
 
 public class ComputerPlayer extends Player {    
     private Strategy strategy;
+    /** The budget of every move, null for the budget of the strategy itself. */
+    private SearchLimits limits;
     
     /**
      * Creates a new computer player object with strategy strategy.
@@ -15,8 +18,29 @@ public class ComputerPlayer extends Player {
         this.strategy = strategy;
     }
     
+    /**
+     * Creates a new computer player whose strategy searches with the given
+     * number of threads, see {@link Strategy#setThreads(int)}.
+     * @requires threads >= 1
+     */
+    public ComputerPlayer(Color color, Strategy strategy, int threads) {
+        this(color, strategy);
+        setThreads(threads);
+    }
+    
+    /**
+     * A strategy only looks at the board.
+     */
+    @Override
+    public boolean usesStateOfGame() {
+        return false;
+    }
+    
     @Override
     public Move determineMove(Board board, String string) {
+        if (limits != null) {
+            return this.strategy.determineMove(board, super.getColor(), limits);
+        }
         return this.strategy.determineMove(board, super.getColor());
     }
     
@@ -33,4 +57,29 @@ public class ComputerPlayer extends Player {
     public void setStrategy(Strategy strategy) {
         this.strategy = strategy;
     }
+    
+    /**
+     * Getter for the budget of every move, null if the strategy uses its own.
+     */
+    public SearchLimits getSearchLimits() {
+        return limits;
+    }
+    
+    /**
+     * Sets the budget of every move, see
+     * {@link Strategy#determineMove(Board, Color, SearchLimits)}, for example
+     * the time per move allowed by a server. Null to use the budget of the
+     * strategy itself.
+     */
+    public void setSearchLimits(SearchLimits limits) {
+        this.limits = limits;
+    }
+    
+    /**
+     * Sets the number of threads the strategy may search with.
+     * @requires threads >= 1
+     */
+    public void setThreads(int threads) {
+        strategy.setThreads(threads);
+    }
 }
@@ -2,48 +2,53 @@ package abalone;
 
 /**
  * Field class.
- * 
+ * A field is a view of one position on a board; the marble on it is stored in
+ * the {@link BitBoard} of that board.
+ *
  * @authors Bozhidar Petrov, Daan Pluister
  */
 public class Field {
-    private Marble marble;
-    private boolean valid;
+    private Board board;
+    private int cell;
     private int row;
     private int col;
-    
+
     /**
-     * Makes a field with given coordinates and validity.
+     * Makes a field of given board with given coordinates.
      */
-    public Field(boolean valid, int row, int col) {
-        this.valid = valid;
-        marble = null;
+    public Field(Board board, int row, int col) {
+        this.board = board;
+        this.cell = BitBoard.index(row, col);
         this.row = row;
         this.col = col;
     }
-    
+
     /**
      * Getter for the marble on the field.
      * @return marble on field. if no marble return null.
      */
     public Marble getMarble() {
-        return marble;
+        if (!isValid()) {
+            return null;
+        }
+        return Marble.of(board.getBitBoard().getColor(cell));
     }
-    
+
     /**
      * Put a given marble on the field.
      */
     public void setMarble(Marble m) {
-        marble = m;
+        board.setField(row, col, m);
     }
-    
+
     /**
      * Check if field is valid.
      * @return true if field is valid
      */
     public boolean isValid() {
-        return valid;
+        return cell != -1;
     }
-    
+
     /**
      * Query.
      */
@@ -58,6 +63,14 @@ public class Field {
         return col;
     }
 
+    /**
+     * Query.
+     * @return the index of the field in the bitboard, -1 if not valid
+     */
+    public int getCell() {
+        return cell;
+    }
+
     /**
      * Makes a string of the field with all of its details.
      */
@@ -70,9 +83,10 @@ public class Field {
      * Makes a string of the field to be used in a TUI.
      */
     public String toString() {
-        if (! valid) {
+        if (! isValid()) {
             return " ";
         }
+        Marble marble = getMarble();
         if (marble == null) {
             return "+";
         }
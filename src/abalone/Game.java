@@ -58,6 +58,11 @@ public abstract class Game {
      */
     private int numberOfTurns;
 
+    /**
+     * Source of the random choices of the game, which player starts.
+     */
+    private Random random = new Random();
+
     // -- Constructors -----------------------------------------------
 
     /**
@@ -92,6 +97,23 @@ public abstract class Game {
         return players.length;
     }
 
+    /**
+     * Returns the number of turns played in the current or last game.
+     */
+    public int getNumberOfTurns() {
+        return numberOfTurns;
+    }
+
+    /**
+     * Sets the source of the random choices of the game, for example a seeded
+     * Random to replay the same games.
+     * 
+     * @requires random != null
+     */
+    public void setRandom(Random random) {
+        this.random = random;
+    }
+
     // -- Commands ---------------------------------------------------
 
     /**
@@ -100,43 +122,7 @@ public abstract class Game {
      *     of players, return null.
      */
     public Color getNextColor() {
-        switch (getNumberOfPlayers()) {
-            case 2:
-                switch (currentColor) {
-                    case WHITE:
-                        return Color.BLACK;
-                    case BLACK:
-                        return Color.WHITE;
-                    default:
-                        return null;    
-                }
-            case 3:
-                switch (currentColor) {
-                    case BLUE:
-                        return Color.BLACK;
-                    case BLACK:
-                        return Color.WHITE;
-                    case WHITE: 
-                        return Color.BLUE;
-                    default:
-                        return null;
-                }
-            case 4:
-                switch (currentColor) {
-                    case BLACK:
-                        return Color.RED;
-                    case RED:
-                        return Color.WHITE;
-                    case WHITE:
-                        return Color.BLUE;
-                    case BLUE:
-                        return Color.BLACK;
-                    default:
-                        return null;
-                }
-            default:
-                return null;
-        }
+        return currentColor.next(getNumberOfPlayers());
     }
     
     /**
@@ -168,6 +154,7 @@ public abstract class Game {
      * <li>Board will be reset for getNumberOfPlayers() players.
      * <li>Scores are reset.
      * <li>Teams are set.
+     * <li>The board is told the starting color.
      * </ul>
      * 
      * <p>.
@@ -178,6 +165,7 @@ public abstract class Game {
         board.reset(getNumberOfPlayers());
         resetScores();
         board.setTeams(makeTeams(getNumberOfPlayers()));
+        board.setSideToMove(currentColor);
     }
     
     /**
@@ -185,8 +173,7 @@ public abstract class Game {
      * @return
      */
     public Color getStartingColor() {
-        Random r = new Random();
-        return players[r.nextInt(players.length)].getColor();
+        return players[random.nextInt(players.length)].getColor();
     }
     
     
@@ -221,7 +208,8 @@ public abstract class Game {
         Move nextMove;
         while (!hasWinner() && numberOfTurns < MAX_TURNS) {
             Player nextPlayer = players[getIntOfCurrentColor()];
-            nextMove = nextPlayer.determineMove(board, toString());
+            nextMove = nextPlayer.determineMove(board,
+                    nextPlayer.usesStateOfGame() ? toString() : null);
             try {
                 board.move(nextMove);
             } catch (InvalidMoveException e1) {
@@ -231,6 +219,8 @@ public abstract class Game {
                 increaseScore(currentColor);
             }
             currentColor = getNextTurn();
+            // the board only passes the turn itself if the move was performed
+            board.setSideToMove(currentColor);
             numberOfTurns++;
         }
         Player winner = determineWinner();
@@ -0,0 +1,96 @@
+package abalone;
+
+import java.util.Arrays;
+
+/**
+ * A list of packed moves (see {@link PackedMove}) backed by an int array.
+ * The list is meant to be cleared and filled again for every position, so
+ * that generating moves does not allocate.
+ *
+ * @authors Bozhidar Petrov, Daan Pluister
+ */
+public class IntMoveList {
+
+    // -- Constants --------------------------------------------------
+
+    private static final int DEFAULT_CAPACITY = 128;
+
+    // -- Instance variables -----------------------------------------
+
+    private int[] moves;
+    private int size;
+
+    // -- Constructors -----------------------------------------------
+
+    /**
+     * Creates an empty list.
+     */
+    public IntMoveList() {
+        moves = new int[DEFAULT_CAPACITY];
+    }
+
+    // -- Queries ----------------------------------------------------
+
+    /**
+     * Returns the number of moves.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the i-th move.
+     * @requires 0 <= i < size()
+     */
+    public int get(int i) {
+        return moves[i];
+    }
+
+    /**
+     * Checks if the list contains the given move.
+     */
+    public boolean contains(int move) {
+        for (int i = 0; i < size; i++) {
+            if (moves[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // -- Commands ---------------------------------------------------
+
+    /**
+     * Adds a move at the end, growing the array if it is full.
+     */
+    public void add(int move) {
+        if (size == moves.length) {
+            moves = Arrays.copyOf(moves, 2 * moves.length);
+        }
+        moves[size++] = move;
+    }
+
+    /**
+     * Replaces the i-th move.
+     * @requires 0 <= i < size()
+     */
+    public void set(int i, int move) {
+        moves[i] = move;
+    }
+
+    /**
+     * Swaps the i-th and j-th move.
+     */
+    public void swap(int i, int j) {
+        int temp = moves[i];
+        moves[i] = moves[j];
+        moves[j] = temp;
+    }
+
+    /**
+     * Removes all moves, keeping the array.
+     */
+    public void clear() {
+        size = 0;
+    }
+}
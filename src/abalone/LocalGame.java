@@ -1,6 +1,8 @@
 package abalone;
 
+import abalone.ai.AlphaBetaStrategy;
 import abalone.ai.ItsOverAnakinIHaveTheHighGroundStrategy;
+import abalone.ai.MctsStrategy;
 import abalone.ai.RandomStrategy;
 import abalone.client.AbaloneClientView;
 import java.util.HashMap;
@@ -45,6 +47,8 @@ public class LocalGame extends Game {
     /**
      * creates player with Color color with name as name of human player except if one of the following:
      * <li>if name.contains("RandomStrategy") RandomStrategy
+     * <li>if name.contains("AlphaBetaStrategy") AlphaBetaStrategy
+     * <li>if name.contains("MctsStrategy") MctsStrategy
      * <li>if name.contains("ItsOverAnakinIHaveTheHighGroundStrategy") ItsOverAnakinIHaveTheHighGroundStrategy
      * <li>if name.contains("ReverseAnakinStrategy") ReverseAnakinStrategy
      * <li>else HumanPlayer with view
@@ -55,6 +59,10 @@ public class LocalGame extends Game {
     public static Player createPlayer(AbaloneClientView view, String name, Color color) {
         if (name.contains("RandomStrategy")) {
             return new ComputerPlayer(color, new RandomStrategy());
+        } else if (name.contains("AlphaBetaStrategy")) {
+            return new ComputerPlayer(color, new AlphaBetaStrategy());
+        } else if (name.contains("MctsStrategy")) {
+            return new ComputerPlayer(color, new MctsStrategy());
         } else if (name.contains("ItsOverAnakinIHaveTheHighGroundStrategy")) {
             return new ComputerPlayer(color,
                     new ItsOverAnakinIHaveTheHighGroundStrategy());
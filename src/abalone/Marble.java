@@ -12,18 +12,47 @@ public class Marble {
     // -- Instance variables -----------------------------------------
 
     private Color color;
-    
+    /** Whether this is the marble of its color shared by boards, see {@link #of(Color)}. */
+    private final boolean shared;
+
+    /**
+     * One shared marble per color, handed out by boards that only store colors.
+     */
+    private static final Marble[] SHARED = new Marble[Color.values().length];
+
+    static {
+        for (Color c : Color.values()) {
+            SHARED[c.ordinal()] = new Marble(c, true);
+        }
+    }
+
     // -- Constructors -----------------------------------------------
-    
+
     /**
      * creates a new marble of color color.
      */
     public Marble(Color color) {
+        this(color, false);
+    }
+
+    private Marble(Color color, boolean shared) {
         this.color = color;
+        this.shared = shared;
     }
-    
+
+    /**
+     * Returns the shared marble of a color. This marble cannot be recolored.
+     * @return the marble, or null if color is null
+     */
+    public static Marble of(Color color) {
+        if (color == null) {
+            return null;
+        }
+        return SHARED[color.ordinal()];
+    }
+
     // -- Queries ----------------------------------------------------
-    
+
     /**
      * The color of the marble.
      * @ensures color != null
@@ -37,8 +66,13 @@ public class Marble {
     /**
      * Sets the color of the marble.
      * @requires color is a valid color
+     * @throws UnsupportedOperationException if this is a shared marble
      */
     public void setColor(Color color) {
+        if (shared) {
+            throw new UnsupportedOperationException("Shared " + this.color
+                    + " marble cannot be recolored");
+        }
         this.color = color;
     }
     
@@ -19,11 +19,14 @@ public class Move {
     private int colHead;
     private int rowDest;
     private int colDest;
-    private int rowMove;
-    private int colMove;
+    private int tail;
+    private int head;
+    private int direction;
     private Field[] fields;
     private Color color;
     private boolean marbleKilled = false;
+    /** The field that made the last check fail, used for the error message. */
+    private Field invalidField;
     
     /**
      * Makes a new selection associated to given board and given coordinates.
@@ -73,10 +76,8 @@ public class Move {
     }
 
     /**
-     * Checks whether move is valid. If it is, it performs it. After that,
-     * the map of colors of the board is updated (perhaps this should be done
-     * in the board class, however moves are not always performed through that
-     * class, instead some methods call move.perform directly).
+     * Checks whether move is valid. If it is, it performs it. The lists of
+     * pieces of the board are updated as every marble is moved.
      * @throws InvalidMoveException with appropriate message if any of the
      *     conditions are violated
      * @throws MarbleKilledException if a marble was killed (the boolean
@@ -86,7 +87,6 @@ public class Move {
     public void perform() throws InvalidMoveException, MarbleKilledException {
         isValidMove();
         moveAllFields();
-        board.makeMapOfColors();
         if (marbleKilled) {
             throw new MarbleKilledException();
         }
@@ -98,37 +98,81 @@ public class Move {
      * so it can check if they are occupied and if the destination is adjacent.
      * After that it checks whether the move is along the axis of the selection
      * or not, then in calls the appropriate method for each case.
-     * @throws InvalidMoveException if any of the conditions are violated
-     */
-    public void isValidMove() throws InvalidMoveException {
-        isValidSelection();
+     * Nothing is thrown and no message is built, which makes this the method to
+     * use when many candidate moves are tried, like when generating moves.
+     * @return VALID, or the first condition that is violated
+     */
+    public MoveStatus check() {
+        MoveStatus status = checkSelection();
+        if (!status.isValid()) {
+            return status;
+        }
         this.fields = getSelectedFields();
-        areAllOccupied();
-        destinationIsAdjacent();
+        this.direction = getDirection();
+        status = areAllOccupied();
+        if (!status.isValid()) {
+            return status;
+        }
+        status = destinationIsAdjacent();
+        if (!status.isValid()) {
+            return status;
+        }
         if (moveIsAlongAxis()) {
-            canMoveField(findLocomotive(), fields.length - 1);
+            return canMoveField(findLocomotive(), fields.length - 1);
+        } else if (moveIsAgainstAxis()) {
+            return MoveStatus.AGAINST_AXIS;
         } else {
-            canMoveOneByOne();
+            return canMoveOneByOne();
         }
     }
+
+    /**
+     * Checks if a move is valid without performing it, see {@link #check()}.
+     * This is meant for moves given by a user.
+     * @throws InvalidMoveException with a message explaining which condition
+     *     is violated
+     */
+    public void isValidMove() throws InvalidMoveException {
+        throwIfInvalid(check());
+    }
     
     /**
-     * Sees if a move is valid but does not check if selection is valid.
-     * @requires selection is valid
+     * Same as {@link #isValidMove()}.
      */
     public void isValidMoveQuick() throws InvalidMoveException {
-        isValidSelection();
-        this.fields = getSelectedFields();
-        areAllOccupied();
-        destinationIsAdjacent();
-        if (moveIsAlongAxis()) {
-            canMoveField(findLocomotive(), fields.length - 1);
-        } else {
-            canMoveOneByOne();
+        isValidMove();
+    }
+
+    /**
+     * Throws an exception with the message of status if it is not VALID.
+     */
+    private void throwIfInvalid(MoveStatus status) throws InvalidMoveException {
+        if (!status.isValid()) {
+            throw new InvalidMoveException(getMessage(status));
         }
     }
+
+    /**
+     * Makes the message explaining why this move has the given status.
+     * @param status the result of the last check of this move
+     */
+    public String getMessage(MoveStatus status) {
+        if (status == MoveStatus.NOT_OCCUPIED) {
+            return status.getDescription() + ": " + invalidField.getFullString()
+                    + "; " + toHumanString();
+        }
+        return status.getDescription() + "; " + toHumanString();
+    }
     
-    
+    /**
+     * Returns the direction from the tail to the destination, as used by
+     * {@link BitBoard}.
+     * @return the direction, or -1 if the destination is not adjacent
+     */
+    public int getDirection() {
+        return BitBoard.direction(rowDest - rowTail, colDest - colTail);
+    }
+
     /**
      * Get the size of the selection.
      * @requires selection is valid
@@ -144,10 +188,9 @@ public class Move {
      * If the move is along the axis, the tail is moved first, which recursively
      * moves all other marbles in front of it.
      * If the move is not along the axis, all marbles are moved separately.
-     * @throws InvalidMoveException from moveIsAlongAxis()
      * @requires move is valid
      */
-    private void moveAllFields() throws InvalidMoveException {
+    private void moveAllFields() {
         if (!moveIsAlongAxis()) {
             for (Field f : fields) {
                 doMoveField(f);
@@ -163,118 +206,82 @@ public class Move {
      * If next field is taken, recursively move next field.
      * If next field is invalid, kill marble and set marbleKilled
      * to true so an exception will be thrown.
+     * The board updates its lists of pieces for every marble moved or removed.
      * @param field to be moved
      */
     private void doMoveField(Field f) {
         Field nextField = getNextField(f);
         if (nextField == null || !nextField.isValid()) {
-            f.setMarble(null);
+            board.removeMarble(f.getCell());
             marbleKilled = true;
         } else if (nextField.getMarble() == null) {
-            nextField.setMarble(f.getMarble());
-            f.setMarble(null);
+            board.moveMarble(f.getCell(), nextField.getCell());
         } else {
             doMoveField(nextField);
-            nextField.setMarble(f.getMarble());
-            f.setMarble(null);
+            board.moveMarble(f.getCell(), nextField.getCell());
         }
     }
     
     /**
-     * Check if the destination is adjacent to the tail marble.
-     * There are three cases when this is true:
-     * if the row difference is 1 and the column difference is 0 (vertical move)
-     * if the row difference is 0 and the column difference is 1 (horizontal move)
-     * if the row difference is 1 and the column difference is 1 (diagonal move)
-     * @throws InvalidMoveException if condition is violated
+     * Check if the destination is adjacent to the tail marble, which means
+     * the step from the tail to the destination is one of the six directions
+     * of the {@link BitBoard}.
+     * @return NOT_ADJACENT if condition is violated, VALID otherwise
      */
-    private void destinationIsAdjacent() throws InvalidMoveException {
-        if (!(Math.abs(rowTail - rowDest) == 1 && Math.abs(colTail - colDest) == 0)
-                && !(Math.abs(rowTail - rowDest) == 0
-                && Math.abs(colTail - colDest) == 1)
-                && !(Math.abs(rowTail - rowDest) == 1
-                && Math.abs(colTail - colDest) == 1)) {
-            throw new InvalidMoveException("Move destination not adjacent; "
-                    + toHumanString());
+    private MoveStatus destinationIsAdjacent() {
+        if (direction == -1) {
+            return MoveStatus.NOT_ADJACENT;
         }
+        return MoveStatus.VALID;
     }
         
     /**
      * Finds the field of the locomotive marble. This means the field in front.
-     * This is only relevant if the move is along the axis. 
+     * Along the axis the tail is the back marble (see {@link #moveIsAgainstAxis()}),
+     * so this is the head.
+     * This is only relevant if the move is along the axis.
      * If move is not along axis, returns any field.
      * @return a field in the selection
      */
     private Field findLocomotive() {
-        for (Field f : fields) {
-            boolean ind = true;
-            Field nextField = getNextField(f);
-            for (Field g : fields) {
-                if (g == nextField) {
-                    ind = false;
-                    break;
-                }
-            }
-            if (ind) {
-                return f;
-            }
-        }
-        return null;
+        return board.getField(head);
     }
     
     /**
-     * Finds last wagon of the selection. This is the marble in the back.
+     * Finds last wagon of the selection. This is the marble in the back, so the
+     * tail.
      * Only relevant for moving along axis.
      * If move is not along axis, returns any field.
      * @return a field of the selection
-     * @throws InvalidMoveException from moveIsAlongAxis()
      */
-    private Field findLastWagon() throws InvalidMoveException {
-        if (!moveIsAlongAxis()) {
-            return fields[0];
-        }
-        for (Field f : fields) {
-            boolean ind = true;
-            Field prevField = getPrevField(f);
-            for (Field g : fields) {
-                if (g == prevField) {
-                    ind = false;
-                    break;
-                }
-            }
-            if (ind) {
-                return f;
-            }
-        }
-        return null;
+    private Field findLastWagon() {
+        return board.getField(tail);
     }
     
     /**
      * Checks if each marble in selection can be moved without pushing.
      * Used for moving laterally.
      * The concept of force is explained in the canMoveField method.
-     * @throws InvalidMoveException if either marble cannot be moved 
+     * @return VALID, or the reason why a marble cannot be moved
      */
-    private void canMoveOneByOne() throws InvalidMoveException {
+    private MoveStatus canMoveOneByOne() {
         for (Field f : fields) {
-            canMoveField(f, -1);
+            MoveStatus status = canMoveField(f, -1);
+            if (!status.isValid()) {
+                return status;
+            }
         }
+        return MoveStatus.VALID;
     }
     
     /**
      * From a given field, gets the next field in direction of the movement.
-     * rowMove and colMove is the movement vector.
-     * @requires move along axis since moving vector is only created in such a case
+     * @requires destination is adjacent, so the direction is known
+     * @return the next field, or null if it lies off the board
      */
     private Field getNextField(Field field) {
-        return board.getField(field.getRow() + rowMove, field.getCol() + colMove);
-    }
-
-    /**
-     * Same as getNextField but the other way.
-     */
-    private Field getPrevField(Field field) {
-        return board.getField(field.getRow() - rowMove, field.getCol() - colMove);
+        int next = BitBoard.neighbor(field.getCell(), direction);
+        return next == -1 ? null : board.getField(next);
     }
     
     /**
@@ -308,78 +315,66 @@ public class Move {
      * 
      * @param f current field that is pushed
      * @param force indicates how many enemy marbles can still be pushed
-     * @throws InvalidMoveException if not valid for whatever reason
+     * @return VALID, or the reason why the push is not allowed
      */
-    private void canMoveField(Field field, int force) throws InvalidMoveException {
+    private MoveStatus canMoveField(Field field, int force) {
         Field nextField = getNextField(field);
         Color currentColor = field.getMarble().getColor();
         if (nextField == null || !nextField.isValid()) {
             if (board.areTeammates(currentColor, color)) {
-                throw new InvalidMoveException("You are not allowed to "
-                        + "commit suicide; " + toHumanString());
+                return MoveStatus.SUICIDE;
             }
         } else {
             if (force == -1) {
                 if (nextField.getMarble() != null) {
-                    throw new InvalidMoveException("Cannot push laterally; "
-                            + toHumanString());
+                    return MoveStatus.LATERAL_PUSH;
                 }
             } else if (force == 0) {
                 if (nextField.getMarble() != null) {
-                    throw new InvalidMoveException("Can't push without force;");
+                    return MoveStatus.NO_FORCE;
                 }
             } else {
                 if (!(nextField.getMarble() == null)) {
                     Marble nextMarble = nextField.getMarble();
                     if (board.areTeammates(currentColor, color)) {
                         if (board.areTeammates(nextMarble.getColor(), color)) {
-                            throw new InvalidMoveException("Can't push own;");
+                            return MoveStatus.PUSH_OWN;
                         } else {
-                            canMoveField(nextField, force - 1);
+                            return canMoveField(nextField, force - 1);
                         }
                     } else {
                         if (!board.areTeammates(nextMarble.getColor(), color)) {
-                            canMoveField(nextField, force - 1);
+                            return canMoveField(nextField, force - 1);
                         } else {
-                            throw new InvalidMoveException("Invalid push: "
-                                    + toHumanString());
+                            return MoveStatus.INVALID_PUSH;
                         }
                     }
                 }
             }
         }
+        return MoveStatus.VALID;
     }
     
     /**
-     * Check if move is along axis by checking if moving from the tail field
-     * of the selection in the direction of the move vector (rowMove, colMove)
-     * or opposite that direction ends up in one of the other fields. This is
-     * only the case if the movement is along the axis.
+     * Check if move is along axis, which is the case if the direction of the
+     * move is the direction from the tail to the head of the selection.
      * If selection is of size one, the selection counts as being along the axis
      * for pushing purposes.
      * @return true if along axis, false otherwise
-     * @throws InvalidMoveException if along the axis but not the way that is
-     *     correct according to Wikipedia
-     */
-    private boolean moveIsAlongAxis() throws InvalidMoveException {
-        rowMove = rowDest - rowTail;
-        colMove = colDest - colTail;
-        if (fields.length == 1) {
-            return true;
-        }
-        for (Field f : fields) {
-            if (f == board.getField(rowDest, colDest)) {
-                return true;
-            }
-        }
-        for (Field f : fields) {
-            if (board.getField(rowTail + rowMove, colTail + colMove)
-                    == f || board.getField(rowTail - rowMove, colTail
-                    - colMove) == f) {
-                throw new InvalidMoveException("Wikipedia does not allow this");
-            }
-        }
-        return false;
+     */
+    private boolean moveIsAlongAxis() {
+        return tail == head || BitBoard.lineDirection(tail, head) == direction;
+    }
+
+    /**
+     * Check if a move that is not along the axis as checked by
+     * {@link #moveIsAlongAxis()} is along the axis the other way around, which
+     * means the tail is in front of the selection. This is not correct according
+     * to Wikipedia.
+     * @return true if the direction of the move is from the head to the tail
+     */
+    private boolean moveIsAgainstAxis() {
+        return BitBoard.lineDirection(head, tail) == direction;
     }
     
     /**
@@ -387,82 +382,92 @@ public class Move {
      * -head and tail fields are valid.
      * -they are in the same line (horizontal, vertical or diagonal).
      * -the distance between is in the bounds given by the board (normally 3 or less).
-     * @throws InvalidMoveException if either is violated
+     * @return VALID, or the first condition that is violated
      */
-    public void isValidSelection() throws InvalidMoveException {
+    public MoveStatus checkSelection() {
         if (!board.isField(rowTail, colTail) || !board.isField(rowHead, colHead)) {
-            throw new InvalidMoveException("Selection not valid; " + toHumanString());
+            return MoveStatus.SELECTION_NOT_VALID;
+        }
+        findCells();
+        if (!areInSameLine()) {
+            return MoveStatus.NOT_IN_LINE;
         }
-        areInSameLine();
-        distanceWithinBounds();
+        if (!distanceWithinBounds()) {
+            return MoveStatus.SELECTION_TOO_LONG;
+        }
+        return MoveStatus.VALID;
+    }
+
+    /**
+     * Checks if selection is valid, see {@link #checkSelection()}.
+     * @throws InvalidMoveException if either condition is violated
+     */
+    public void isValidSelection() throws InvalidMoveException {
+        throwIfInvalid(checkSelection());
     }
     
     /**
      * Finds the fields belonging to selection and makes an array of them.
-     * First it calculates the size of the selection by looking at the vertical
-     * and horizontal distance and taking the maximum (and adding 1). So if the
-     * fields are 2 apart the distance is 3.
-     * Then, starting at the tail, it goes through the fields in the direction of
-     * the movement and stops when the array is filled.
+     * The size of the selection is the distance between tail and head plus 1,
+     * so if the fields are 2 apart the size is 3. Starting at the tail, the
+     * fields are taken from the ray towards the head.
      * @requires selection is valid
      * @return an array of fields in selection
      */
     private Field[] getSelectedFields() {
-        int rowDiff = rowHead - rowTail;
-        int colDiff = colHead - colTail;
-        int size = Math.max(Math.abs(rowDiff), Math.abs(colDiff)) + 1;
-        Field[] result = new Field[size];
-        if (rowDiff != 0) {
-            rowDiff = rowDiff / Math.abs(rowDiff);
-        }
-        if (colDiff != 0) {
-            colDiff = colDiff / Math.abs(colDiff);
-        }
-        int row = rowTail;
-        int col = colTail;
-        for (int i = 0; i < size; i++) {
-            result[i] = board.getField(row + rowDiff * i, col + colDiff * i);
+        findCells();
+        Field[] result = new Field[BitBoard.lineDistance(tail, head) + 1];
+        result[0] = board.getField(tail);
+        if (result.length > 1) {
+            int[] ray = BitBoard.ray(tail, BitBoard.lineDirection(tail, head));
+            for (int i = 1; i < result.length; i++) {
+                result[i] = board.getField(ray[i - 1]);
+            }
         }
         return result;
     }
     
+    /**
+     * Looks up the bitboard indices of the tail and head fields.
+     * @requires tail and head are valid fields
+     */
+    private void findCells() {
+        tail = BitBoard.index(rowTail, colTail);
+        head = BitBoard.index(rowHead, colHead);
+    }
+    
     /**
      * Checks if distance between head and tail is within the bounds given by
      * the board.
-     * @throws InvalidMoveException if distance too large
+     * @return false if distance too large
      * @requires fields are in line
      */
-    private void distanceWithinBounds() throws InvalidMoveException {
-        if (!(Math.abs(rowTail - rowHead) < board.getMaxPush()
-                && Math.abs(colTail - colHead) < board.getMaxPush())) {
-            throw new InvalidMoveException("Selection too long; " + toHumanString());
-        }
+    private boolean distanceWithinBounds() {
+        return BitBoard.lineDistance(tail, head) < board.getMaxPush();
     }
     
     /**
      * Goes through the fields and checks whether they all contain a marble of the
      * color of the move (the color who initiated the move).
-     * @throws InvalidMoveException if a field is not occupied
+     * @return NOT_OCCUPIED if a field is not occupied, VALID otherwise
      */
-    private void areAllOccupied() throws InvalidMoveException {
+    private MoveStatus areAllOccupied() {
         for (Field f : fields) {
             if (f.getMarble() == null || f.getMarble().getColor() != color) {
-                throw new InvalidMoveException("Field does not contain valid marble: "
-                        + f.getFullString() + "; " + toHumanString());
+                invalidField = f;
+                return MoveStatus.NOT_OCCUPIED;
             }
         }
+        return MoveStatus.VALID;
     }
     
     /**
      * Checks if the head and tail of the selection are either in the same row,
      * same column, or same diagonal.
-     * @throws InvalidMoveException if neither is the case
+     * @return false if neither is the case
      */
-    private void areInSameLine() throws InvalidMoveException {
-        if (!((rowTail == rowHead) || (colTail == colHead) || (rowTail - colTail
-                == rowHead - colHead))) {
-            throw new InvalidMoveException("Fields not in same line; " + toHumanString());
-        }
+    private boolean areInSameLine() {
+        return BitBoard.lineDistance(tail, head) != -1;
     }
     
     /**
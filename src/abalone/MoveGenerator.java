@@ -0,0 +1,129 @@
+package abalone;
+
+/**
+ * Generates the valid moves of a color as packed moves (see {@link PackedMove})
+ * using only the bitboard, so without Move objects or exceptions.
+ * The rules are those of {@link Move#check()}. Moves are generated in the same
+ * order as {@link abalone.ai.Strategy#makeMovesList(Board, Color)}, except that
+ * a move perpendicular to the axis of its selection is only generated once
+ * (with the tail at the lower index), where makeMovesList has it once for
+ * each end of the selection.
+ *
+ * @authors Bozhidar Petrov, Daan Pluister
+ */
+public final class MoveGenerator {
+
+    private MoveGenerator() {
+    }
+
+    /**
+     * Clears the list and fills it with all valid moves of color on board.
+     */
+    public static void generate(Board board, Color color, IntMoveList list) {
+        generate(board, color, list, false);
+    }
+
+    /**
+     * Clears the list and fills it with the valid moves of color on board that
+     * push opponent marbles, in the same order as {@link #generate}.
+     */
+    public static void generatePushes(Board board, Color color, IntMoveList list) {
+        generate(board, color, list, true);
+    }
+
+    /**
+     * Fills the list with all valid moves, or only the pushes.
+     */
+    private static void generate(Board board, Color color, IntMoveList list,
+            boolean pushesOnly) {
+        list.clear();
+        BitBoard bits = board.getBitBoard();
+        long own = bits.getMask(color);
+        long friendly = 0;
+        for (Color c : Color.values()) {
+            if (board.areTeammates(c, color)) {
+                friendly |= bits.getMask(c);
+            }
+        }
+        long enemy = bits.getOccupied() & ~friendly;
+        long occupied = bits.getOccupied();
+        PieceList pieces = board.getPieces(color);
+        int l = pieces.size();
+        for (int i = 0; i < l; i++) {
+            int tail = pieces.get(i);
+            for (int j = 0; j < l; j++) {
+                int head = pieces.get(j);
+                if (tail == head) {
+                    if (!pushesOnly) {
+                        addSingleMoves(tail, occupied, list);
+                    }
+                    continue;
+                }
+                long group = BitBoard.groupMask(tail, head);
+                if (group == 0 || (own & group) != group) {
+                    continue;
+                }
+                int lineDir = BitBoard.lineDirection(tail, head);
+                int size = BitBoard.lineDistance(tail, head) + 1;
+                for (int dir = 0; dir < BitBoard.DIRECTIONS; dir++) {
+                    if (dir == lineDir) {
+                        addInlineMove(tail, head, dir, size - 1, friendly, enemy, pushesOnly,
+                                list);
+                    } else if (!pushesOnly && dir != (lineDir ^ 1) && tail < head
+                            && canMoveSideways(tail, lineDir, size, dir, occupied)) {
+                        list.add(PackedMove.encode(tail, head, dir, 0, false));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the moves of a single marble, which can only move to empty fields.
+     */
+    private static void addSingleMoves(int cell, long occupied, IntMoveList list) {
+        for (int dir = 0; dir < BitBoard.DIRECTIONS; dir++) {
+            int dest = BitBoard.neighbor(cell, dir);
+            if (dest != -1 && (occupied & (1L << dest)) == 0) {
+                list.add(PackedMove.encode(cell, cell, dir, 0, false));
+            }
+        }
+    }
+
+    /**
+     * Adds the move along the axis of a selection from tail to head, if it is
+     * valid. The selection can push at most force opponent marbles, and only if
+     * they are followed by an empty field or the edge of the board.
+     * With pushesOnly the move is only added if it pushes.
+     */
+    private static void addInlineMove(int tail, int head, int dir, int force,
+            long friendly, long enemy, boolean pushesOnly, IntMoveList list) {
+        int[] ray = BitBoard.ray(head, dir);
+        int pushed = 0;
+        while (pushed < ray.length && (enemy & (1L << ray[pushed])) != 0) {
+            pushed++;
+        }
+        int next = pushed < ray.length ? ray[pushed] : -1;
+        if (pushed == 0 && (next == -1 || pushesOnly)) {
+            return;
+        }
+        if (pushed > force || (next != -1 && ((friendly | enemy) & (1L << next)) != 0)) {
+            return;
+        }
+        list.add(PackedMove.encode(tail, head, dir, pushed, next == -1));
+    }
+
+    /**
+     * Checks if all marbles of a selection can move to an empty field in dir.
+     */
+    private static boolean canMoveSideways(int tail, int lineDir, int size, int dir, long occupied) {
+        int[] line = BitBoard.ray(tail, lineDir);
+        for (int k = 0; k < size; k++) {
+            int dest = BitBoard.neighbor(k == 0 ? tail : line[k - 1], dir);
+            if (dest == -1 || (occupied & (1L << dest)) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
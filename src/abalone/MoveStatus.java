@@ -0,0 +1,46 @@
+package abalone;
+
+/**
+ * The outcome of checking a move with {@link Move#check()}. Every reason for
+ * a move to be invalid has its own status, so that a move can be rejected
+ * without building a message or throwing an exception.
+ *
+ * @authors Bozhidar Petrov, Daan Pluister
+ */
+public enum MoveStatus {
+
+    VALID("Valid move"),
+    SELECTION_NOT_VALID("Selection not valid"),
+    NOT_IN_LINE("Fields not in same line"),
+    SELECTION_TOO_LONG("Selection too long"),
+    NOT_OCCUPIED("Field does not contain valid marble"),
+    NOT_ADJACENT("Move destination not adjacent"),
+    AGAINST_AXIS("Wikipedia does not allow this"),
+    SUICIDE("You are not allowed to commit suicide"),
+    LATERAL_PUSH("Cannot push laterally"),
+    NO_FORCE("Can't push without force"),
+    PUSH_OWN("Can't push own"),
+    INVALID_PUSH("Invalid push");
+
+    private final String description;
+
+    MoveStatus(String description) {
+        this.description = description;
+    }
+
+    /**
+     * Query.
+     * @return true if this is VALID
+     */
+    public boolean isValid() {
+        return this == VALID;
+    }
+
+    /**
+     * Returns a short description of the status, used in the message of an
+     * {@link abalone.exceptions.InvalidMoveException}.
+     */
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,162 @@
+package abalone;
+
+import abalone.exceptions.InvalidMoveException;
+import abalone.protocol.ProtocolMessages;
+
+/**
+ * Encodes a move in a single int, so that generated moves do not need a
+ * {@link Move} object each. The bits are used as follows:
+ * <ul>
+ * <li>0-5: index of the tail field in the {@link BitBoard}
+ * <li>6-11: index of the head field
+ * <li>12-14: direction of the move, as used by {@link BitBoard}
+ * <li>15-16: number of opponent marbles pushed (0 to 2)
+ * <li>17: set if the last pushed marble is pushed off the board
+ * </ul>
+ * As for a Move, the destination is the neighbor of the tail in the direction
+ * of the move, and for a move along the axis the tail is the back marble.
+ *
+ * @authors Bozhidar Petrov, Daan Pluister
+ */
+public final class PackedMove {
+
+    // -- Constants --------------------------------------------------
+
+    private static final int CELL_BITS = 6;
+    private static final int CELL_MASK = (1 << CELL_BITS) - 1;
+    private static final int HEAD_SHIFT = CELL_BITS;
+    private static final int DIR_SHIFT = 2 * CELL_BITS;
+    private static final int PUSH_SHIFT = DIR_SHIFT + 3;
+    private static final int EJECT_BIT = 1 << (PUSH_SHIFT + 2);
+
+    /** Value that is never a move, for empty slots. */
+    public static final int NONE = -1;
+
+    private PackedMove() {
+    }
+
+    // -- Encoding ---------------------------------------------------
+
+    /**
+     * Packs a move in an int.
+     *
+     * @param tail index of the tail field
+     * @param head index of the head field
+     * @param dir direction of the move
+     * @param pushCount number of opponent marbles pushed
+     * @param eject true if a marble is pushed off the board
+     */
+    public static int encode(int tail, int head, int dir, int pushCount, boolean eject) {
+        int move = tail | (head << HEAD_SHIFT) | (dir << DIR_SHIFT) | (pushCount << PUSH_SHIFT);
+        return eject ? move | EJECT_BIT : move;
+    }
+
+    /**
+     * Query.
+     */
+    public static int getTail(int move) {
+        return move & CELL_MASK;
+    }
+
+    /**
+     * Query.
+     */
+    public static int getHead(int move) {
+        return (move >>> HEAD_SHIFT) & CELL_MASK;
+    }
+
+    /**
+     * Query.
+     */
+    public static int getDirection(int move) {
+        return (move >>> DIR_SHIFT) & 7;
+    }
+
+    /**
+     * Query.
+     */
+    public static int getPushCount(int move) {
+        return (move >>> PUSH_SHIFT) & 3;
+    }
+
+    /**
+     * Query.
+     */
+    public static boolean isEject(int move) {
+        return (move & EJECT_BIT) != 0;
+    }
+
+    /**
+     * Returns the index of the field the tail moves to.
+     */
+    public static int getDestination(int move) {
+        return BitBoard.neighbor(getTail(move), getDirection(move));
+    }
+
+    // -- Conversion -------------------------------------------------
+
+    /**
+     * Packs a checked move. The number of pushed marbles is read from the board
+     * the move is to be performed on.
+     *
+     * @requires move.check() is VALID on board
+     */
+    public static int fromMove(Board board, Move move) {
+        int tail = BitBoard.index(move.getRowTail(), move.getColTail());
+        int head = BitBoard.index(move.getRowHead(), move.getColHead());
+        int dir = move.getDirection();
+        int pushCount = 0;
+        boolean eject = false;
+        if (tail == head || BitBoard.lineDirection(tail, head) == dir) {
+            BitBoard bits = board.getBitBoard();
+            int[] ray = BitBoard.ray(head, dir);
+            while (pushCount < ray.length && !bits.isEmpty(ray[pushCount])) {
+                pushCount++;
+            }
+            eject = pushCount > 0 && pushCount == ray.length;
+        }
+        return encode(tail, head, dir, pushCount, eject);
+    }
+
+    /**
+     * Makes a Move object of a packed move.
+     */
+    public static Move toMove(Board board, Color color, int move) {
+        int tail = getTail(move);
+        int head = getHead(move);
+        int dest = getDestination(move);
+        return new Move(board, color, BitBoard.row(tail), BitBoard.col(tail),
+                BitBoard.row(head), BitBoard.col(head), BitBoard.row(dest), BitBoard.col(dest));
+    }
+
+    /**
+     * Makes the protocol form of a move: tail, head and destination separated
+     * by {@link ProtocolMessages#DELIMITER}, for example A1;C3;B2.
+     */
+    public static String toProtocolString(int move) {
+        return fieldName(getTail(move)) + ProtocolMessages.DELIMITER + fieldName(getHead(move))
+                + ProtocolMessages.DELIMITER + fieldName(getDestination(move));
+    }
+
+    /**
+     * Parses a move in protocol form (for example a1;c3;b2) and checks it.
+     *
+     * @return the packed move
+     * @throws InvalidMoveException if the string is not of the right form or
+     *     the move is not valid on board
+     */
+    public static int fromProtocolString(Board board, Color color, String string)
+            throws InvalidMoveException {
+        Move move = board.parseMovePattern(color,
+                string.replace(ProtocolMessages.DELIMITER, " "));
+        move.isValidMove();
+        return fromMove(board, move);
+    }
+
+    /**
+     * Makes the user coordinates of a field, like A1.
+     */
+    private static String fieldName(int cell) {
+        return "" + (char) ('A' + BitBoard.row(cell)) + (char) ('1' + BitBoard.col(cell));
+    }
+}
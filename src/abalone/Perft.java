@@ -0,0 +1,248 @@
+package abalone;
+
+import abalone.ai.RandomStrategy;
+import abalone.ai.Strategy;
+import abalone.exceptions.InvalidMoveException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Counts the positions at a given depth of the tree of all valid moves, to
+ * check and time the move generation. {@link #perft(Board, int)} uses
+ * {@link MoveGenerator}; {@link #perftReference(Board, int)} counts the same
+ * with {@link Strategy#makeMovesList(Board, Color)} and Move objects, the
+ * rules every faster generator must match, and
+ * {@link #findDifference(Board, int)} compares the two in every position of
+ * the tree. Moves are the same if they lead to the same position, so a move
+ * to the side that makeMovesList has for both ends of its selection is one
+ * move.
+ * The side to move is taken from the board (see
+ * {@link Board#setSideToMove(Color)}) and moves to the next player with every
+ * move. The end of the game is not detected, so positions after a player has
+ * lost are counted as well.
+ *
+ * @authors Bozhidar Petrov, Daan Pluister
+ */
+public final class Perft {
+
+    private Perft() {
+    }
+
+    // -- Counting ---------------------------------------------------
+
+    /**
+     * Counts the positions reached from board after depth moves.
+     * @requires board.getSideToMove() != null && depth >= 0
+     */
+    public static long perft(Board board, int depth) {
+        return perft(board, depth, buffers(depth), undos(depth));
+    }
+
+    /**
+     * Like {@link #perft(Board, int)}, but gives the count after each move of
+     * the side to move, by the protocol string of the move (see
+     * {@link PackedMove#toProtocolString(int)}), in the order of generation.
+     * @requires board.getSideToMove() != null && depth >= 1
+     */
+    public static Map<String, Long> divide(Board board, int depth) {
+        IntMoveList[] lists = buffers(depth);
+        UndoRecord[] undos = undos(depth);
+        Map<String, Long> counts = new LinkedHashMap<String, Long>();
+        IntMoveList list = lists[depth - 1];
+        MoveGenerator.generate(board, board.getSideToMove(), list);
+        for (int i = 0; i < list.size(); i++) {
+            board.makeMove(list.get(i), undos[depth - 1]);
+            counts.put(PackedMove.toProtocolString(list.get(i)),
+                    perft(board, depth - 1, lists, undos));
+            board.unmakeMove(undos[depth - 1]);
+        }
+        return counts;
+    }
+
+    /**
+     * Counts like {@link #perft(Board, int)} with the moves of
+     * {@link Strategy#makeMovesList(Board, Color)}, each checked with
+     * {@link Move#isValidMoveQuick()}. Moves leading to the same position are
+     * counted once.
+     * @requires board.getSideToMove() != null && depth >= 0
+     */
+    public static long perftReference(Board board, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        long count = 0;
+        for (Move move : referenceMoves(board)) {
+            UndoRecord undo = board.makeMove(move);
+            count += perftReference(board, depth - 1);
+            board.unmakeMove(undo);
+        }
+        return count;
+    }
+
+    /**
+     * Compares the moves of {@link MoveGenerator} with those of
+     * {@link #perftReference(Board, int)} in every position up to depth moves
+     * from board.
+     * @requires board.getSideToMove() != null && depth >= 0
+     * @return null if they are the same everywhere, otherwise a description of
+     *     the first position where they differ
+     */
+    public static String findDifference(Board board, int depth) {
+        return findDifference(board, depth, buffers(depth + 1), undos(depth + 1), "");
+    }
+
+    // -- Helpers ----------------------------------------------------
+
+    private static long perft(Board board, int depth, IntMoveList[] lists, UndoRecord[] undos) {
+        if (depth == 0) {
+            return 1;
+        }
+        IntMoveList list = lists[depth - 1];
+        MoveGenerator.generate(board, board.getSideToMove(), list);
+        if (depth == 1) {
+            return list.size();
+        }
+        long count = 0;
+        for (int i = 0; i < list.size(); i++) {
+            board.makeMove(list.get(i), undos[depth - 1]);
+            count += perft(board, depth - 1, lists, undos);
+            board.unmakeMove(undos[depth - 1]);
+        }
+        return count;
+    }
+
+    private static String findDifference(Board board, int depth, IntMoveList[] lists,
+            UndoRecord[] undos, String path) {
+        IntMoveList list = lists[depth];
+        MoveGenerator.generate(board, board.getSideToMove(), list);
+        Map<Long, String> generated = new HashMap<Long, String>();
+        for (int i = 0; i < list.size(); i++) {
+            board.makeMove(list.get(i), undos[depth]);
+            String previous = generated.put(board.hash(), PackedMove.toProtocolString(list.get(i)));
+            board.unmakeMove(undos[depth]);
+            if (previous != null) {
+                return "after [" + path + "]: " + previous + " is generated twice";
+            }
+        }
+        Map<Long, String> reference = new HashMap<Long, String>();
+        for (Move move : referenceMoves(board)) {
+            UndoRecord undo = board.makeMove(move);
+            reference.put(board.hash(), move.toString());
+            board.unmakeMove(undo);
+        }
+        if (!generated.keySet().equals(reference.keySet())) {
+            Map<Long, String> missing = new HashMap<Long, String>(reference);
+            missing.keySet().removeAll(generated.keySet());
+            Map<Long, String> extra = new HashMap<Long, String>(generated);
+            extra.keySet().removeAll(reference.keySet());
+            return "after [" + path + "]: missing " + missing.values() + ", extra "
+                    + extra.values();
+        }
+        if (depth == 0) {
+            return null;
+        }
+        for (int i = 0; i < list.size(); i++) {
+            int move = list.get(i);
+            board.makeMove(move, undos[depth]);
+            String difference = findDifference(board, depth - 1, lists, undos,
+                    path + (path.isEmpty() ? "" : " ") + PackedMove.toProtocolString(move));
+            board.unmakeMove(undos[depth]);
+            if (difference != null) {
+                return difference;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the valid moves of the side to move by makeMovesList, leaving
+     * out moves to a position an earlier move already leads to.
+     * @throws IllegalStateException if makeMovesList gives an invalid move
+     */
+    private static ArrayList<Move> referenceMoves(Board board) {
+        Strategy strategy = new RandomStrategy();
+        Set<Long> positions = new HashSet<Long>();
+        ArrayList<Move> moves = new ArrayList<Move>();
+        for (Move move : strategy.makeMovesList(board, board.getSideToMove())) {
+            try {
+                move.isValidMoveQuick();
+            } catch (InvalidMoveException e) {
+                throw new IllegalStateException("makeMovesList gave an invalid move " + move, e);
+            }
+            UndoRecord undo = board.makeMove(move);
+            if (positions.add(board.hash())) {
+                moves.add(move);
+            }
+            board.unmakeMove(undo);
+        }
+        return moves;
+    }
+
+    private static IntMoveList[] buffers(int depth) {
+        IntMoveList[] lists = new IntMoveList[depth];
+        for (int i = 0; i < depth; i++) {
+            lists[i] = new IntMoveList();
+        }
+        return lists;
+    }
+
+    private static UndoRecord[] undos(int depth) {
+        UndoRecord[] undos = new UndoRecord[depth];
+        for (int i = 0; i < depth; i++) {
+            undos[i] = new UndoRecord();
+        }
+        return undos;
+    }
+
+    // -- Main -------------------------------------------------------
+
+    /**
+     * Counts from the starting position of a 2 player game, white to move,
+     * and prints the count, the time and the positions per second.
+     * @param args the depth (default 3), and optionally --divide to also print
+     *     the count per move, --reference to count with makeMovesList instead,
+     *     or --verify to compare the two generators
+     */
+    public static void main(String[] args) {
+        int depth = 3;
+        String mode = "";
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                mode = arg;
+            } else {
+                depth = Integer.parseInt(arg);
+            }
+        }
+        Board board = new Board(2);
+        board.setSideToMove(Color.WHITE);
+        long start = System.nanoTime();
+        long nodes;
+        switch (mode) {
+            case "--divide":
+                nodes = 0;
+                for (Map.Entry<String, Long> entry : divide(board, depth).entrySet()) {
+                    System.out.println(entry.getKey() + ": " + entry.getValue());
+                    nodes += entry.getValue();
+                }
+                break;
+            case "--reference":
+                nodes = perftReference(board, depth);
+                break;
+            case "--verify":
+                String difference = findDifference(board, depth);
+                System.out.println(difference == null ? "Same moves up to depth " + depth
+                        : "Different moves " + difference);
+                return;
+            default:
+                nodes = perft(board, depth);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("perft(%d) = %d in %.3f s, %.0f nodes/s%n", depth, nodes, seconds,
+                nodes / seconds);
+    }
+}
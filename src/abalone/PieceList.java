@@ -0,0 +1,109 @@
+package abalone;
+
+/**
+ * The fields holding the marbles of one color, as indexes into the
+ * {@link BitBoard}. The list is updated whenever a marble of its color is
+ * placed, moved or pushed off the board, so it never has to be rebuilt.
+ * Indexes are kept in increasing order, which is the order in which a scan
+ * of the board would find them.
+ *
+ * @authors Bozhidar Petrov, Daan Pluister
+ */
+public class PieceList {
+
+    // -- Instance variables -----------------------------------------
+
+    private final int[] cells;
+    private int size;
+
+    // -- Constructors -----------------------------------------------
+
+    /**
+     * Creates an empty list.
+     */
+    public PieceList() {
+        cells = new int[BitBoard.CELLS];
+    }
+
+    /**
+     * Creates a copy of the given list.
+     */
+    public PieceList(PieceList other) {
+        cells = other.cells.clone();
+        size = other.size;
+    }
+
+    // -- Queries ----------------------------------------------------
+
+    /**
+     * Returns the number of marbles.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the index of the field of the i-th marble.
+     * @requires 0 <= i < size()
+     */
+    public int get(int i) {
+        return cells[i];
+    }
+
+    /**
+     * Checks if there is a marble on the field with the given index.
+     */
+    public boolean contains(int cell) {
+        return find(cell) >= 0;
+    }
+
+    /**
+     * Finds the position of cell in the list.
+     * @return the position, or -(insertion point) - 1 if it is not in the list
+     */
+    private int find(int cell) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (cells[mid] < cell) {
+                low = mid + 1;
+            } else if (cells[mid] > cell) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    // -- Commands ---------------------------------------------------
+
+    /**
+     * Adds a marble on the field with the given index.
+     * @requires !contains(cell)
+     */
+    void add(int cell) {
+        int i = -(find(cell) + 1);
+        System.arraycopy(cells, i, cells, i + 1, size - i);
+        cells[i] = cell;
+        size++;
+    }
+
+    /**
+     * Removes the marble on the field with the given index.
+     * @requires contains(cell)
+     */
+    void remove(int cell) {
+        int i = find(cell);
+        System.arraycopy(cells, i + 1, cells, i, size - i - 1);
+        size--;
+    }
+
+    /**
+     * Removes all marbles.
+     */
+    void clear() {
+        size = 0;
+    }
+}
@@ -49,6 +49,14 @@ public abstract class Player {
         this.color = color;
     }
 
+    /**
+     * Query if the player reads the stateOfGame given to
+     * {@link #determineMove(Board, String)}. If not the game does not make it.
+     */
+    public boolean usesStateOfGame() {
+        return true;
+    }
+
     /**
      * Determines the Move for the next move.
      * @requires board is not null and not full
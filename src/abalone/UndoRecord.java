@@ -0,0 +1,102 @@
+package abalone;
+
+/**
+ * Record of the fields changed by {@link Board#makeMove(Move, UndoRecord)}.
+ * It holds the previous content of every touched field and the color of the
+ * marble that was pushed off the board (if any), which is enough to take the
+ * move back with {@link Board#unmakeMove(UndoRecord)}. A record can be reused
+ * for every move, so that simulating moves does not allocate.
+ *
+ * @authors Bozhidar Petrov, Daan Pluister
+ */
+public class UndoRecord {
+
+    // -- Constants --------------------------------------------------
+
+    /**
+     * A move changes at most three selected fields, two pushed fields and the
+     * field in front of them.
+     */
+    public static final int MAX_FIELDS = 6;
+
+    // -- Instance variables -----------------------------------------
+
+    private final int[] cells = new int[MAX_FIELDS];
+    private final Color[] colors = new Color[MAX_FIELDS];
+    private int size;
+    private Color ejected;
+    private boolean marbleKilled;
+    private Color sideToMove;
+
+    // -- Queries ----------------------------------------------------
+
+    /**
+     * Returns the number of fields changed by the move.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the index of the i-th changed field.
+     */
+    public int getCell(int i) {
+        return cells[i];
+    }
+
+    /**
+     * Returns the color that was on the i-th changed field before the move.
+     */
+    public Color getColor(int i) {
+        return colors[i];
+    }
+
+    /**
+     * Returns the color of the marble pushed off the board, null if none was.
+     */
+    public Color getEjected() {
+        return ejected;
+    }
+
+    /**
+     * Returns the value of {@link Board#marbleKilled} before the move.
+     */
+    public boolean getMarbleKilled() {
+        return marbleKilled;
+    }
+
+    /**
+     * Returns the side to move of the board before the move.
+     */
+    public Color getSideToMove() {
+        return sideToMove;
+    }
+
+    // -- Commands ---------------------------------------------------
+
+    /**
+     * Empties the record before a new move is made.
+     */
+    void clear(boolean previousMarbleKilled, Color previousSideToMove) {
+        size = 0;
+        ejected = null;
+        marbleKilled = previousMarbleKilled;
+        sideToMove = previousSideToMove;
+    }
+
+    /**
+     * Remembers the content of a field before it is changed.
+     */
+    void add(int cell, Color color) {
+        cells[size] = cell;
+        colors[size] = color;
+        size++;
+    }
+
+    /**
+     * Remembers the color of the marble pushed off the board.
+     */
+    void setEjected(Color color) {
+        ejected = color;
+    }
+}
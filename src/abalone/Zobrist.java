@@ -0,0 +1,70 @@
+package abalone;
+
+import java.util.Random;
+
+/**
+ * Random keys for Zobrist hashing of positions. The hash of a position is the
+ * exclusive or of the key of every (field, color) pair on the board and the key
+ * of the color to move, so a move changes it by exclusive or-ing only the keys
+ * of the fields it touches (see {@link Board#hash()}).
+ * The keys are made with a fixed seed, so the hash of a position is the same
+ * in every run and can be stored, for example in self-play data.
+ *
+ * @authors Bozhidar Petrov, Daan Pluister
+ */
+public final class Zobrist {
+
+    // -- Constants --------------------------------------------------
+
+    private static final long SEED = 0x5EED_ABA1_0E5EL;
+
+    private static final long[][] FIELD_KEYS = new long[BitBoard.CELLS][Color.values().length];
+    private static final long[] SIDE_KEYS = new long[Color.values().length];
+
+    static {
+        Random random = new Random(SEED);
+        for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+            for (int color = 0; color < Color.values().length; color++) {
+                FIELD_KEYS[cell][color] = random.nextLong();
+            }
+        }
+        for (int color = 0; color < Color.values().length; color++) {
+            SIDE_KEYS[color] = random.nextLong();
+        }
+    }
+
+    private Zobrist() {
+    }
+
+    // -- Queries ----------------------------------------------------
+
+    /**
+     * Returns the key of a marble of the given color on a field.
+     *
+     * @return the key, or 0 if color is null
+     */
+    public static long fieldKey(int cell, Color color) {
+        return color == null ? 0 : FIELD_KEYS[cell][color.ordinal()];
+    }
+
+    /**
+     * Returns the key of the given color being to move.
+     *
+     * @return the key, or 0 if color is null
+     */
+    public static long sideKey(Color color) {
+        return color == null ? 0 : SIDE_KEYS[color.ordinal()];
+    }
+
+    /**
+     * Computes the hash of a position from scratch. The board keeps its hash up
+     * to date itself, so this is only needed to check it.
+     */
+    public static long compute(BitBoard bits, Color sideToMove) {
+        long hash = sideKey(sideToMove);
+        for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+            hash ^= fieldKey(cell, bits.getColor(cell));
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,584 @@
+package abalone.ai;
+
+import abalone.Board;
+import abalone.Color;
+import abalone.IntMoveList;
+import abalone.Move;
+import abalone.MoveGenerator;
+import abalone.PackedMove;
+import abalone.UndoRecord;
+
+/**
+ * A strategy that looks ahead with a negamax alpha-beta search. The search
+ * is deepened one ply at a time until the time or node budget is spent, and
+ * the best move of the deepest completed search is played.
+ * Positions at the end of the search are scored with the features of
+ * {@link ItsOverAnakinIHaveTheHighGroundStrategy#evaluateBoard(Board, Color)},
+ * taken as the score of the side to move minus that of the opponent, plus a
+ * material term. Moves are generated as packed moves and simulated in place
+ * with {@link Board#makeMove(int, UndoRecord)}. Results are kept in a
+ * {@link TranspositionTable}, so that a position reached again through other
+ * moves is not searched again, and its best move is searched first. The other
+ * moves are tried in the order of {@link MoveOrdering}: pushes first, then the
+ * moves that caused cutoffs elsewhere.
+ * Positions at the end of the search are not scored right away if pushes are
+ * possible, since a push battle can change the score a lot in a few moves.
+ * A quiescence search tries only the pushes from there, for at most
+ * {@link #getQuiescenceDepth()} more plies, where the side to move can also
+ * stop pushing and take the score of the position (stand pat).
+ * With more than one thread (see {@link #setThreads(int)}) helper threads
+ * search the same position on copies of the board while the calling thread
+ * searches (lazy SMP). They only share the transposition table, so every
+ * thread profits from the results of the others. The move of the thread that
+ * completed the deepest search is played.
+ * Only makes sense in a 2 player game.
+ *
+ * @authors Bozhidar Petrov, Daan Pluister
+ */
+public class AlphaBetaStrategy implements Strategy {
+
+    // -- Constants --------------------------------------------------
+
+    /** Default time budget per move in milliseconds. */
+    public static final long DEFAULT_TIME = 1000;
+
+    /** Deepest search, also the size of the per ply buffers. */
+    public static final int MAX_DEPTH = 64;
+
+    /** Marbles a player starts with in a 2 player game. */
+    private static final int MARBLES = 14;
+
+    /** Marbles that have to be pushed off to win. */
+    private static final int MARBLES_TO_WIN = 6;
+
+    /**
+     * Score of a won position, minus the number of plies to reach it. Small
+     * enough to be exact as a float in the transposition table.
+     */
+    private static final double WIN = 1e6;
+
+    /** Number of nodes between checks of the clock. */
+    private static final int CHECK_INTERVAL = 1024;
+
+    /** Default number of plies of pushes searched after the end of the search. */
+    public static final int DEFAULT_QUIESCENCE_DEPTH = 6;
+
+    // -- Instance variables -----------------------------------------
+
+    private final int maxDepth;
+    /** The budget of a move if none is given to determineMove. */
+    private final SearchLimits limits;
+    private final double[] factors;
+    private final ItsOverAnakinIHaveTheHighGroundStrategy evaluator;
+    private final TranspositionTable table;
+    /** Strategies searching for the helper threads, one less than the threads. */
+    private AlphaBetaStrategy[] helpers = new AlphaBetaStrategy[0];
+    private long[] threadNodes = new long[1];
+    private int quiescenceDepth = DEFAULT_QUIESCENCE_DEPTH;
+
+    private final IntMoveList[] moveLists = new IntMoveList[MAX_DEPTH + 1];
+    private final UndoRecord[] undos = new UndoRecord[MAX_DEPTH + 1];
+    private final MoveOrdering ordering = new MoveOrdering(MAX_DEPTH);
+
+    private TimeControl clock;
+    private long nodes;
+    /** Positions whose moves were searched, that cut off, and did so on the first move. */
+    private long expanded;
+    private long cutoffs;
+    private long firstMoveCutoffs;
+    /** Set when the budget is spent, or by the main thread for a helper. */
+    private volatile boolean stopped;
+    private int completedDepth;
+    private int bestMove;
+
+    // -- Constructors -----------------------------------------------
+
+    /**
+     * Makes a strategy with the given budget. A limit of 0 means no limit,
+     * but at least one of them should be set.
+     * @param maxDepth deepest search in plies, at most MAX_DEPTH
+     * @param timeLimit time per move in milliseconds
+     * @param nodeLimit number of positions searched per move
+     * @param factors the factors of the evaluation, see
+     *     {@link ItsOverAnakinIHaveTheHighGroundStrategy}
+     * @param table the transposition table to use
+     */
+    public AlphaBetaStrategy(int maxDepth, long timeLimit, long nodeLimit, double[] factors,
+            TranspositionTable table) {
+        this.maxDepth = Math.min(maxDepth, MAX_DEPTH);
+        this.limits = new SearchLimits(timeLimit, nodeLimit);
+        this.factors = factors;
+        this.evaluator = new ItsOverAnakinIHaveTheHighGroundStrategy(factors);
+        this.table = table;
+        for (int i = 0; i <= MAX_DEPTH; i++) {
+            moveLists[i] = new IntMoveList();
+            undos[i] = new UndoRecord();
+        }
+    }
+
+    /**
+     * Makes a strategy with the given budget and a transposition table of
+     * {@link TranspositionTable#DEFAULT_SIZE} megabytes.
+     */
+    public AlphaBetaStrategy(int maxDepth, long timeLimit, long nodeLimit, double[] factors) {
+        this(maxDepth, timeLimit, nodeLimit, factors, new TranspositionTable());
+    }
+
+    /**
+     * Makes a strategy with the given time budget and the offensive factors.
+     * @param timeLimit time per move in milliseconds
+     */
+    public AlphaBetaStrategy(long timeLimit) {
+        this(MAX_DEPTH, timeLimit, 0,
+                ItsOverAnakinIHaveTheHighGroundStrategy.getOffensiveArray());
+    }
+
+    /**
+     * Makes a strategy with a budget of DEFAULT_TIME per move.
+     */
+    public AlphaBetaStrategy() {
+        this(DEFAULT_TIME);
+    }
+
+    // -- Queries ----------------------------------------------------
+
+    @Override
+    public String getName() {
+        return "AlphaBeta";
+    }
+
+    /**
+     * Returns the number of positions searched for the last move by the
+     * calling thread, which is the one the node limit applies to.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns the number of positions searched for the last move by every
+     * thread, starting with the calling thread.
+     */
+    public long[] getThreadNodes() {
+        return threadNodes.clone();
+    }
+
+    /**
+     * Query.
+     */
+    public int getThreads() {
+        return helpers.length + 1;
+    }
+
+    /**
+     * Returns the depth of the deepest completed search for the last move.
+     */
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    /**
+     * Query.
+     */
+    public int getQuiescenceDepth() {
+        return quiescenceDepth;
+    }
+
+    /**
+     * Returns the number of positions whose moves were searched for the last
+     * move by the calling thread, so not counting the positions at the end of
+     * the search, those of the quiescence search and those found in the
+     * transposition table.
+     */
+    public long getExpandedNodes() {
+        return expanded;
+    }
+
+    /**
+     * Returns the number of positions of {@link #getExpandedNodes()} where a
+     * move was good enough to not search the others (a beta cutoff).
+     */
+    public long getCutoffs() {
+        return cutoffs;
+    }
+
+    /**
+     * Returns the fraction of the searched positions that cut off, 0 if none
+     * were searched.
+     */
+    public double getCutoffRate() {
+        return expanded == 0 ? 0 : (double) cutoffs / expanded;
+    }
+
+    /**
+     * Returns the fraction of the cutoffs that happened on the first move
+     * tried, a measure of how good the move ordering is. 0 if there were no
+     * cutoffs.
+     */
+    public double getFirstMoveCutoffRate() {
+        return cutoffs == 0 ? 0 : (double) firstMoveCutoffs / cutoffs;
+    }
+
+    /**
+     * Describes the search for the last move by the calling thread.
+     */
+    public String getStatistics() {
+        return String.format("depth %d, %d nodes, %d cutoffs in %d searched (%.1f%%), "
+                + "%.1f%% on the first move", completedDepth, nodes, cutoffs, expanded,
+                100 * getCutoffRate(), 100 * getFirstMoveCutoffRate());
+    }
+
+    /**
+     * Query.
+     */
+    public TranspositionTable getTranspositionTable() {
+        return table;
+    }
+
+    // -- Commands ---------------------------------------------------
+
+    /**
+     * Sets the number of threads to search with. The helpers share the
+     * transposition table and search without a budget of their own until the
+     * calling thread is done.
+     * @param threads at least 1
+     */
+    @Override
+    public void setThreads(int threads) {
+        helpers = new AlphaBetaStrategy[threads - 1];
+        for (int i = 0; i < helpers.length; i++) {
+            helpers[i] = new AlphaBetaStrategy(maxDepth, 0, 0, factors, table);
+            helpers[i].quiescenceDepth = quiescenceDepth;
+        }
+        threadNodes = new long[threads];
+    }
+
+    /**
+     * Sets the number of plies of pushes searched after the end of the search.
+     * @param depth at least 0, 0 to score the positions at the end right away
+     */
+    public void setQuiescenceDepth(int depth) {
+        quiescenceDepth = depth;
+        for (AlphaBetaStrategy helper : helpers) {
+            helper.quiescenceDepth = depth;
+        }
+    }
+
+    // -- Search -----------------------------------------------------
+
+    /**
+     * Searches for the best move within the budget the strategy was made with.
+     */
+    @Override
+    public Move determineMove(Board board, Color color) {
+        return determineMove(board, color, limits);
+    }
+
+    /**
+     * Searches for the best move within the given budget, as decided by a
+     * {@link TimeControl}: no new iteration is started after the soft
+     * deadline, and the search stops at the hard deadline or node limit
+     * wherever it is. The maximum depth of the strategy still applies. The side
+     * to move of the board is set to color during the search, so that the
+     * hashes of the positions include it.
+     * Helper threads are started first and stopped when the calling thread
+     * has spent its budget.
+     * @param limits the budget, {@link SearchLimits#NONE} for the budget the
+     *     strategy was made with
+     */
+    @Override
+    public Move determineMove(Board board, Color color, SearchLimits limits) {
+        if (limits.isUnlimited()) {
+            limits = this.limits;
+        }
+        table.newSearch();
+        Color sideToMove = board.getSideToMove();
+        board.setSideToMove(color);
+        Thread[] workers = new Thread[helpers.length];
+        for (int i = 0; i < helpers.length; i++) {
+            AlphaBetaStrategy helper = helpers[i];
+            Board copy = board.deepCopy();
+            int id = i + 1;
+            helper.stopped = false;
+            workers[i] = new Thread(() -> helper.search(copy, color, id, SearchLimits.NONE),
+                    "AlphaBeta-" + id);
+            workers[i].start();
+        }
+        stopped = false;
+        search(board, color, 0, limits);
+        int move = bestMove;
+        int depth = completedDepth;
+        threadNodes[0] = nodes;
+        for (int i = 0; i < helpers.length; i++) {
+            helpers[i].stopped = true;
+            join(workers[i]);
+            if (helpers[i].completedDepth > depth) {
+                move = helpers[i].bestMove;
+                depth = helpers[i].completedDepth;
+            }
+            threadNodes[i + 1] = helpers[i].nodes;
+        }
+        board.setSideToMove(sideToMove);
+        return PackedMove.toMove(board, color, move);
+    }
+
+    /**
+     * Waits for a helper thread to finish.
+     */
+    private static void join(Thread worker) {
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Deepens the search one ply at a time until the budget is spent or the
+     * search is stopped, leaving the result in bestMove and completedDepth.
+     * An iteration is not started if the time control advises against it,
+     * and an iteration that is stopped still gives its best move if it has
+     * one, since that was searched completely and found better than the move
+     * of the iteration before, which is searched first.
+     * Helpers make their search differ from the others by starting with
+     * another root move and, for odd ids, at depth 2.
+     * @param id 0 for the calling thread, the number of the helper otherwise
+     */
+    private void search(Board board, Color color, int id, SearchLimits limits) {
+        nodes = 0;
+        expanded = 0;
+        cutoffs = 0;
+        firstMoveCutoffs = 0;
+        completedDepth = 0;
+        clock = new TimeControl(limits);
+        ordering.newSearch();
+        Color opponent = evaluator.getOpponentColor(board, color);
+        IntMoveList rootMoves = moveLists[0];
+        MoveGenerator.generate(board, color, rootMoves);
+        ordering.score(rootMoves, 0, PackedMove.NONE);
+        for (int i = 0; i < rootMoves.size(); i++) {
+            ordering.pickNext(rootMoves, 0, i);
+        }
+        bestMove = rootMoves.get(id % rootMoves.size());
+        moveToFront(rootMoves, bestMove);
+        int stableIterations = 0;
+        for (int depth = 1 + (id & 1); depth <= maxDepth && !stopped; depth++) {
+            if (completedDepth > 0 && !clock.canStartIteration(stableIterations)) {
+                break;
+            }
+            int iterationBest = searchRoot(board, color, opponent, depth);
+            stableIterations = iterationBest == bestMove ? stableIterations + 1 : 0;
+            bestMove = iterationBest;
+            if (!stopped) {
+                completedDepth = depth;
+                moveToFront(rootMoves, bestMove);
+            }
+        }
+    }
+
+    /**
+     * Searches every root move to the given depth.
+     * @return the best move, or if the search was stopped the best of the
+     *     moves that were searched completely, the first move if none were
+     */
+    private int searchRoot(Board board, Color color, Color opponent, int depth) {
+        IntMoveList moves = moveLists[0];
+        double alpha = -Double.MAX_VALUE;
+        int best = moves.get(0);
+        for (int i = 0; i < moves.size() && !stopped; i++) {
+            int move = moves.get(i);
+            board.makeMove(move, undos[0]);
+            double score = -negamax(board, opponent, color, depth - 1, 1,
+                    -Double.MAX_VALUE, -alpha);
+            board.unmakeMove(undos[0]);
+            if (score > alpha && !stopped) {
+                alpha = score;
+                best = move;
+            }
+        }
+        if (!stopped) {
+            table.store(board.hash(), depth, TranspositionTable.EXACT, alpha, best);
+        }
+        return best;
+    }
+
+    /**
+     * Scores a position for the side to move by searching it depth plies deep,
+     * followed by the quiescence search.
+     * @param depth plies left to search, 0 or less in the quiescence search
+     * @param ply distance from the root
+     * @return the score, which is not to be used if the search was stopped
+     */
+    private double negamax(Board board, Color side, Color opponent, int depth, int ply,
+            double alpha, double beta) {
+        nodes++;
+        checkBudget();
+        if (stopped) {
+            return 0;
+        }
+        if (board.countMarbles(side) <= MARBLES - MARBLES_TO_WIN) {
+            return -WIN + ply;
+        }
+        if (ply == MAX_DEPTH) {
+            return evaluate(board, side, opponent);
+        }
+        if (depth <= 0) {
+            return quiesce(board, side, opponent, depth, ply, alpha, beta);
+        }
+        long key = board.hash();
+        long entry = table.probe(key);
+        int tableMove = PackedMove.NONE;
+        if (entry != 0) {
+            tableMove = TranspositionTable.getMove(entry);
+            if (TranspositionTable.getDepth(entry) >= depth) {
+                double score = fromTable(TranspositionTable.getScore(entry), ply);
+                int bound = TranspositionTable.getBound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && score >= beta)
+                        || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+        IntMoveList moves = moveLists[ply];
+        MoveGenerator.generate(board, side, moves);
+        if (moves.size() == 0) {
+            return evaluate(board, side, opponent);
+        }
+        expanded++;
+        ordering.score(moves, ply, tableMove);
+        double alphaBefore = alpha;
+        double best = -Double.MAX_VALUE;
+        int bestMove = PackedMove.NONE;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = ordering.pickNext(moves, ply, i);
+            board.makeMove(move, undos[ply]);
+            double score = -negamax(board, opponent, side, depth - 1, ply + 1, -beta, -alpha);
+            board.unmakeMove(undos[ply]);
+            if (stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        cutoffs++;
+                        if (i == 0) {
+                            firstMoveCutoffs++;
+                        }
+                        ordering.cutoff(move, ply, depth);
+                        break;
+                    }
+                }
+            }
+        }
+        int bound = best >= beta ? TranspositionTable.LOWER
+                : best > alphaBefore ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        table.store(key, depth, bound, toTable(best, ply), bestMove);
+        return best;
+    }
+
+    /**
+     * Scores a position at the end of the search by searching only pushes, as
+     * long as the side to move does not do better by standing pat: taking the
+     * evaluation of the position. Positions are not stored in the
+     * transposition table.
+     * @param depth 0 at the end of the search, one less for every push after
+     */
+    private double quiesce(Board board, Color side, Color opponent, int depth, int ply,
+            double alpha, double beta) {
+        double best = evaluate(board, side, opponent);
+        if (best >= beta || -depth >= quiescenceDepth) {
+            return best;
+        }
+        IntMoveList moves = moveLists[ply];
+        MoveGenerator.generatePushes(board, side, moves);
+        ordering.score(moves, ply, PackedMove.NONE);
+        alpha = Math.max(alpha, best);
+        for (int i = 0; i < moves.size(); i++) {
+            int move = ordering.pickNext(moves, ply, i);
+            board.makeMove(move, undos[ply]);
+            double score = -negamax(board, opponent, side, depth - 1, ply + 1, -beta, -alpha);
+            board.unmakeMove(undos[ply]);
+            if (stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Makes a score relative to the position for storing it in the table: a
+     * win is stored as the number of plies from this position instead of from
+     * the root.
+     */
+    private static double toTable(double score, int ply) {
+        if (score > WIN - MAX_DEPTH) {
+            return score + ply;
+        } else if (score < -WIN + MAX_DEPTH) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    /**
+     * The reverse of {@link #toTable(double, int)}.
+     */
+    private static double fromTable(double score, int ply) {
+        if (score > WIN - MAX_DEPTH) {
+            return score - ply;
+        } else if (score < -WIN + MAX_DEPTH) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    /**
+     * Scores a position for side: the evaluation of side minus that of the
+     * opponent, so that the score for the opponent is exactly the negation.
+     * The killed factor weighs the difference in marbles.
+     */
+    private double evaluate(Board board, Color side, Color opponent) {
+        double[] factors = evaluator.getFactors();
+        return evaluator.evaluateBoard(board, side) - evaluator.evaluateBoard(board, opponent)
+                + factors[3] * (board.countMarbles(side) - board.countMarbles(opponent));
+    }
+
+    /**
+     * Stops the search if the node budget is spent, or the time budget; the
+     * clock is only read every CHECK_INTERVAL nodes.
+     */
+    private void checkBudget() {
+        if (clock.isNodeLimitReached(nodes)) {
+            stopped = true;
+        } else if (nodes % CHECK_INTERVAL == 0 && clock.isHardDeadlinePassed()) {
+            stopped = true;
+        }
+    }
+
+    /**
+     * Moves a move to the front of the list, keeping the order of the others,
+     * so that the best move of the last search is searched first.
+     */
+    private static void moveToFront(IntMoveList moves, int move) {
+        for (int i = 0; i < moves.size(); i++) {
+            if (moves.get(i) == move) {
+                for (int j = i; j > 0; j--) {
+                    moves.swap(j, j - 1);
+                }
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package abalone.ai;
+
+import abalone.Color;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size cache of evaluations of positions, so that a position that is
+ * evaluated again, by another move, another search or another game, is not
+ * evaluated from scratch. An entry is found by a 64-bit key made with
+ * {@link #key(long, long, Color, boolean)} from the hash of the position (see
+ * {@link abalone.Board#hash()}), the factors of the evaluation, the color it
+ * is evaluated for and whether a marble was just pushed off.
+ * Like the {@link TranspositionTable} all memory is allocated when the cache
+ * is made, a key and a data array of longs, and the cache can be shared by
+ * threads without locks: the key array holds the key exclusive or-ed with the
+ * data, so an entry that is half written by another thread does not match its
+ * key and is taken as a miss. Every key has one entry, and a new evaluation
+ * always replaces the old one.
+ *
+ * @authors Bozhidar Petrov, Daan Pluister
+ */
+public class EvaluationCache {
+
+    // -- Constants --------------------------------------------------
+
+    /** Default size in megabytes. */
+    public static final int DEFAULT_SIZE = 4;
+
+    private static final int BYTES_PER_ENTRY = 2 * Long.BYTES;
+
+    /** Keys of the colors and of a marble pushed off, mixed into every key. */
+    private static final long[] COLOR_KEYS = new long[Color.values().length];
+    private static final long KILLED_KEY;
+
+    static {
+        SplittableRandom random = new SplittableRandom(0xE7A1_CAC4EL);
+        for (int color = 0; color < COLOR_KEYS.length; color++) {
+            COLOR_KEYS[color] = random.nextLong();
+        }
+        KILLED_KEY = random.nextLong();
+    }
+
+    /** The cache shared by all strategies that do not get their own. */
+    private static final EvaluationCache SHARED = new EvaluationCache(DEFAULT_SIZE);
+
+    // -- Instance variables -----------------------------------------
+
+    private final long[] keys;
+    private final long[] data;
+    private final int mask;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    // -- Constructors -----------------------------------------------
+
+    /**
+     * Makes a cache of at most the given size. The number of entries is the
+     * largest power of two that fits.
+     * @param megabytes size of the cache, at least 1
+     * @throws IllegalArgumentException if megabytes is less than 1
+     */
+    public EvaluationCache(int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("Cache size below 1 MB: " + megabytes);
+        }
+        long entries = (long) megabytes * 1024 * 1024 / BYTES_PER_ENTRY;
+        int size = Integer.highestOneBit((int) Math.min(entries, 1 << 30));
+        this.keys = new long[size];
+        this.data = new long[size];
+        this.mask = size - 1;
+        clear();
+    }
+
+    // -- Queries ----------------------------------------------------
+
+    /**
+     * Returns the cache of DEFAULT_SIZE megabytes shared by the whole program.
+     */
+    public static EvaluationCache getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the key of an evaluation.
+     * @param hash the hash of the position
+     * @param factorsKey the key of the factors, see {@link #factorsKey(double[])}
+     * @param color the color the position is evaluated for
+     * @param killed whether a marble was just pushed off
+     */
+    public static long key(long hash, long factorsKey, Color color, boolean killed) {
+        return hash ^ factorsKey ^ COLOR_KEYS[color.ordinal()] ^ (killed ? KILLED_KEY : 0);
+    }
+
+    /**
+     * Returns a key of the values of factors, so that evaluations with other
+     * factors have other keys. Arrays with the same values have the same key.
+     */
+    public static long factorsKey(double[] factors) {
+        long key = factors.length;
+        for (double factor : factors) {
+            key = mix(key ^ Double.doubleToLongBits(factor));
+        }
+        return key;
+    }
+
+    /**
+     * Query.
+     */
+    public int getCapacity() {
+        return keys.length;
+    }
+
+    /**
+     * Returns the number of lookups that found their evaluation since the cache
+     * was made or cleared.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of lookups that did not find their evaluation since
+     * the cache was made or cleared.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the fraction of the lookups that found their evaluation, 0 if
+     * there were none.
+     */
+    public double getHitRate() {
+        long found = getHits();
+        long lookups = found + getMisses();
+        return lookups == 0 ? 0 : (double) found / lookups;
+    }
+
+    /**
+     * Looks up an evaluation and counts a hit or a miss.
+     * @param key the key of the evaluation
+     * @return the evaluation, or NaN if it is not in the cache
+     */
+    public double probe(long key) {
+        int index = (int) (key ^ (key >>> 32)) & mask;
+        long entry = data[index];
+        if ((keys[index] ^ entry) == key) {
+            hits.increment();
+            return Double.longBitsToDouble(entry);
+        }
+        misses.increment();
+        return Double.NaN;
+    }
+
+    // -- Commands ---------------------------------------------------
+
+    /**
+     * Stores an evaluation, replacing the entry of its key. NaN is not stored,
+     * as it means a miss.
+     * @param key the key of the evaluation
+     * @param score the evaluation
+     */
+    public void store(long key, double score) {
+        if (Double.isNaN(score)) {
+            return;
+        }
+        int index = (int) (key ^ (key >>> 32)) & mask;
+        long entry = Double.doubleToRawLongBits(score);
+        data[index] = entry;
+        keys[index] = key ^ entry;
+    }
+
+    /**
+     * Empties the cache and sets the counters to 0.
+     */
+    public void clear() {
+        long empty = Double.doubleToRawLongBits(Double.NaN);
+        for (int i = 0; i < keys.length; i++) {
+            data[i] = empty;
+            keys[i] = 0;
+        }
+        hits.reset();
+        misses.reset();
+    }
+
+    // -- Helpers ----------------------------------------------------
+
+    /**
+     * Mixes the bits of a long (the finalizer of SplitMix64).
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -1,9 +1,11 @@
 package abalone.ai;
 
+import abalone.BitBoard;
 import abalone.Board;
 import abalone.Color;
 import abalone.Field;
 import abalone.Move;
+import abalone.UndoRecord;
 import abalone.exceptions.InvalidMoveException;
 import abalone.exceptions.MarbleKilledException;
 
@@ -21,6 +23,10 @@ public class ItsOverAnakinIHaveTheHighGroundStrategy implements Strategy {
     
     private static int numberOfParameters = 4;
     private double[] factors; 
+    /** Key of the factors for the evaluation cache. */
+    private long factorsKey;
+    private EvaluationCache cache;
+    private UndoRecord undo = new UndoRecord();
 
     /**
      * Metrics:
@@ -30,7 +36,7 @@ public class ItsOverAnakinIHaveTheHighGroundStrategy implements Strategy {
      * - enemy marble(s) killed.
      */
     public ItsOverAnakinIHaveTheHighGroundStrategy(double[] factors) {
-        this.factors = factors;
+        setFactors(factors);
     }
     
     /**
@@ -38,7 +44,7 @@ public class ItsOverAnakinIHaveTheHighGroundStrategy implements Strategy {
      * strategy with default factors (offensive).
      */
     public ItsOverAnakinIHaveTheHighGroundStrategy() {
-        factors = getOffensiveArray();
+        this(getOffensiveArray());
     }
     
     /**
@@ -97,18 +103,43 @@ public class ItsOverAnakinIHaveTheHighGroundStrategy implements Strategy {
     }
     
     /**
-     * Get an array of the factors.
+     * Get an array of the factors. It should not be changed, as evaluations
+     * are cached by the factors they were made with.
      */
     public double[] getFactors() {
         return factors;
     }
+    
+    /**
+     * Sets the factors of the evaluation.
+     */
+    private void setFactors(double[] factors) {
+        this.factors = factors;
+        this.factorsKey = EvaluationCache.factorsKey(factors);
+    }
+    
+    /**
+     * Get the cache of evaluations, null if evaluations are not cached.
+     */
+    public EvaluationCache getEvaluationCache() {
+        return cache;
+    }
+    
+    /**
+     * Sets the cache to keep evaluations in, null to not cache them. A cache
+     * can be shared by strategies with any factors and by threads, for example
+     * {@link EvaluationCache#getShared()}.
+     */
+    public void setEvaluationCache(EvaluationCache cache) {
+        this.cache = cache;
+    }
 
     @Override
     public Move determineMove(Board board, Color color) {
         if (hasTheLead(board, color)) {
-            factors = getDefensiveArray();
+            setFactors(getDefensiveArray());
         } else {
-            factors = getOffensiveArray();
+            setFactors(getOffensiveArray());
         }
         ArrayList<Move> moveList = makeMovesList(board, color);
         double bestScore = Integer.MIN_VALUE;
@@ -125,22 +156,43 @@ public class ItsOverAnakinIHaveTheHighGroundStrategy implements Strategy {
     }
     
     public boolean hasTheLead(Board board, Color color) {
-        return board.getMapOfColors().get(color).size()
-                > board.getMapOfColors().get(getOpponentColor(board, color)).size();
+        return board.countMarbles(color)
+                > board.countMarbles(getOpponentColor(board, color));
     }
     
     /**
-     * Evaluates a move by simulating it and evaluating the board.
+     * Evaluates a move by performing it on the board, evaluating the board and
+     * taking the move back.
      */
     protected double evaluateMove(Board board, Color color, Move move) {
-        return evaluateBoard(simulateMove(board, move), color);
+        board.makeMove(move, undo);
+        double score = evaluateBoard(board, color);
+        board.unmakeMove(undo);
+        return score;
     }
     
     /**
      * Determines the score of a board by using a linear combination of its
-     * properties.
+     * properties. If there is a cache the score is looked up first, and
+     * stored if it is not found.
      */
     protected double evaluateBoard(Board board, Color color) {
+        if (cache == null) {
+            return computeScore(board, color);
+        }
+        long key = EvaluationCache.key(board.hash(), factorsKey, color, board.marbleKilled);
+        double score = cache.probe(key);
+        if (Double.isNaN(score)) {
+            score = computeScore(board, color);
+            cache.store(key, score);
+        }
+        return score;
+    }
+    
+    /**
+     * Computes the score of {@link #evaluateBoard(Board, Color)}.
+     */
+    private double computeScore(Board board, Color color) {
         double ownDistance = colorDistanceFromCenter(board, color);
         double opponentDistance = colorDistanceFromCenter(board, getOpponentColor(board, color));
         double triplets = countTriplets(board, color);
@@ -168,41 +220,21 @@ public class ItsOverAnakinIHaveTheHighGroundStrategy implements Strategy {
      * the current position is.
      * Doubles also add to the score with a totally not arbitrarily
      * chosen factor of 0.3.
+     * A line of three counts if its two ends are marbles of the color, like a
+     * selection of the two, whatever is in the middle. The board keeps the
+     * counts up to date as marbles move, see {@link Board#countSpansOf3(Color)}.
      */
     public double countTriplets(Board board, Color color) {
-        ArrayList<Field> fields = board.getMapOfColors().get(color);
-        int l = fields.size();
-        double counter = 0;
-        for (int i = 0; i < l; i++) {
-            for (int j = i; j < l; j++) {
-                Move move = new Move(board, color, fields.get(i),
-                        fields.get(j), 0, 0);
-                try {
-                    move.isValidSelection();
-                } catch (InvalidMoveException e) {
-                    continue;
-                }
-                if (move.getSelectionSize() == 3) {
-                    counter++;
-                } else if (move.getSelectionSize() == 2) {
-                    counter += 0.3;
-                }
-            }
-        }
-        return counter;
+        return board.countSpansOf3(color) + 0.3 * board.countGroupsOf2(color);
     }
     
     /**
      * Find the average distance from the center of the board for all marbles
-     * of a given color.
+     * of a given color. The board keeps the sum of the distances of each color
+     * up to date as marbles move, so this does not look at the marbles.
      */
     public double colorDistanceFromCenter(Board board, Color color) {
-        double total = 0;
-        for (Field field : board.getMapOfColors().get(color)) {
-            total += fieldDistanceFromCenter(board, field);
-        }
-        total = total / board.getMapOfColors().get(color).size();
-        return total;
+        return (double) board.getCenterDistance(color) / board.countMarbles(color);
     }
     
     /**
@@ -210,19 +242,11 @@ public class ItsOverAnakinIHaveTheHighGroundStrategy implements Strategy {
      * The distance is considered to be in which "ring" around the center
      * the field is in, so center is 0, outer rim is 4.
      * This result is then squared to make the cost of being close to the
-     * edge of the board higher.
+     * edge of the board higher. The distances are in a table made once, see
+     * {@link BitBoard#centerDistance(int)}.
      */
     public int fieldDistanceFromCenter(Board board, Field field) {
-        int center = board.getDim() - 1;
-        int rowDist = field.getRow() - center;
-        int colDist = field.getCol() - center;
-        int result = 0;
-        if (rowDist * colDist >= 0) {
-            result = Math.max(Math.abs(rowDist), Math.abs(colDist));
-        } else {
-            result = Math.abs(rowDist) + Math.abs(colDist);
-        }
-        return result * result;
+        return BitBoard.centerDistance(BitBoard.index(field.getRow(), field.getCol()));
     }
     
     /**
@@ -233,8 +257,8 @@ public class ItsOverAnakinIHaveTheHighGroundStrategy implements Strategy {
      * @requires 2 player game
      */
     public Color getOpponentColor(Board board, Color color) {
-        for (Color c : board.getMapOfColors().keySet()) {
-            if (c != color) {
+        for (Color c : Color.values()) {
+            if (c != color && board.countMarbles(c) > 0) {
                 return c;
             }
         }
@@ -0,0 +1,363 @@
+package abalone.ai;
+
+import abalone.Board;
+import abalone.Color;
+import abalone.IntMoveList;
+import abalone.Move;
+import abalone.MoveGenerator;
+import abalone.PackedMove;
+import abalone.UndoRecord;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A strategy that uses Monte Carlo tree search. Every playout walks down the
+ * tree choosing moves by UCT, adds one new position to it and plays random
+ * moves from there, like {@link RandomStrategy} but always pushing a marble off
+ * when it can. The result is counted in every position on the way back up.
+ * The move that was tried most often is played.
+ * With more than one thread (see {@link #setThreads(int)}) all threads work
+ * on the same tree, each on its own copy of the board. A position is locked
+ * only while a thread chooses or adds a child of it, and a thread passing
+ * through a position counts its visit right away, as if it lost (virtual
+ * loss), so that the other threads are sent to other moves until its result
+ * is in.
+ * Only makes sense in a 2 player game.
+ *
+ * @authors Bozhidar Petrov, Daan Pluister
+ */
+public class MctsStrategy implements Strategy {
+
+    // -- Constants --------------------------------------------------
+
+    /** Default number of playouts per move per thread. */
+    public static final int DEFAULT_PLAYOUTS = 2000;
+
+    /** Exploration constant of UCT. */
+    private static final double EXPLORATION = Math.sqrt(2);
+
+    /** Plies of a playout after which it is scored by the marbles left. */
+    private static final int PLAYOUT_PLIES = 60;
+
+    /** Plies from the root a tree walk and its playout can take together. */
+    private static final int MAX_PLIES = 256;
+
+    /** Marbles a player starts with in a 2 player game. */
+    private static final int MARBLES = 14;
+
+    /** Marbles that have to be pushed off to win. */
+    private static final int MARBLES_TO_WIN = 6;
+
+    // -- Instance variables -----------------------------------------
+
+    private final int playoutsPerThread;
+    private int threads = 1;
+    private int playouts;
+
+    // -- Constructors -----------------------------------------------
+
+    /**
+     * Makes a strategy that does the given number of playouts per move for
+     * every thread it searches with.
+     */
+    public MctsStrategy(int playoutsPerThread) {
+        this.playoutsPerThread = playoutsPerThread;
+    }
+
+    /**
+     * Makes a strategy with DEFAULT_PLAYOUTS playouts per thread.
+     */
+    public MctsStrategy() {
+        this(DEFAULT_PLAYOUTS);
+    }
+
+    // -- Queries ----------------------------------------------------
+
+    @Override
+    public String getName() {
+        return "MCTS";
+    }
+
+    /**
+     * Returns the number of playouts done for the last move.
+     */
+    public int getPlayouts() {
+        return playouts;
+    }
+
+    /**
+     * Query.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    // -- Commands ---------------------------------------------------
+
+    /**
+     * Sets the number of threads working on the tree; the number of playouts
+     * per move grows with it.
+     * @param threads at least 1
+     */
+    @Override
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    // -- Search -----------------------------------------------------
+
+    @Override
+    public Move determineMove(Board board, Color color) {
+        return determineMove(board, color, SearchLimits.NONE);
+    }
+
+    /**
+     * Searches within the given budget: the node limit is the number of
+     * playouts of all threads together, instead of the playouts per thread of
+     * the strategy, and the threads stop at the hard deadline of the
+     * {@link TimeControl}. If not a single playout was done the first valid
+     * move is played.
+     */
+    @Override
+    public Move determineMove(Board board, Color color, SearchLimits limits) {
+        TimeControl clock = new TimeControl(limits);
+        Node root = new Node(PackedMove.NONE, null, opponent(board, color));
+        long playoutLimit = limits.getNodes() > 0 ? limits.getNodes()
+                : (long) playoutsPerThread * threads;
+        AtomicInteger budget = new AtomicInteger((int) Math.min(playoutLimit, Integer.MAX_VALUE));
+        Thread[] workers = new Thread[threads - 1];
+        for (int i = 0; i < workers.length; i++) {
+            Worker worker = new Worker(board.deepCopy(), color, root, budget, clock);
+            workers[i] = new Thread(worker::run, "MCTS-" + (i + 1));
+            workers[i].start();
+        }
+        new Worker(board, color, root, budget, clock).run();
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        playouts = root.visits;
+        if (root.childCount == 0) {
+            IntMoveList moves = new IntMoveList();
+            MoveGenerator.generate(board, color, moves);
+            return PackedMove.toMove(board, color, moves.get(0));
+        }
+        Node best = root.children[0];
+        for (int i = 1; i < root.childCount; i++) {
+            if (root.children[i].visits > best.visits) {
+                best = root.children[i];
+            }
+        }
+        return PackedMove.toMove(board, color, best.move);
+    }
+
+    /**
+     * Returns the color of the opponent of color, the other color with marbles.
+     */
+    private static Color opponent(Board board, Color color) {
+        for (Color c : Color.values()) {
+            if (c != color && board.countMarbles(c) > 0) {
+                return c;
+            }
+        }
+        return color;
+    }
+
+    /**
+     * Checks if color has lost, so has too few marbles left.
+     */
+    private static boolean hasLost(Board board, Color color) {
+        return board.countMarbles(color) <= MARBLES - MARBLES_TO_WIN;
+    }
+
+    // -- Tree -------------------------------------------------------
+
+    /**
+     * A position in the tree, reached by move. The statistics of a node are
+     * changed while holding the lock of its parent (the root its own), which
+     * is also the lock for adding children.
+     */
+    private static class Node {
+        private final int move;
+        private final Node parent;
+        /** The color that played move, whose wins are counted. */
+        private final Color mover;
+        private Node[] children;
+        private int childCount;
+        /** Moves without a child yet, null until the node is first visited. */
+        private int[] untried;
+        private int untriedCount;
+        private int visits;
+        private double wins;
+
+        Node(int move, Node parent, Color mover) {
+            this.move = move;
+            this.parent = parent;
+            this.mover = mover;
+        }
+
+        /**
+         * Returns the object to lock for changing the statistics of this node.
+         */
+        Object lock() {
+            return parent == null ? this : parent;
+        }
+
+        /**
+         * Returns the UCT value of this node as a child of its parent.
+         */
+        double uct(double logParentVisits) {
+            return wins / visits + EXPLORATION * Math.sqrt(logParentVisits / visits);
+        }
+    }
+
+    /**
+     * Does playouts on its own board until the shared budget or the time is
+     * spent.
+     */
+    private static class Worker {
+        private final Board board;
+        private final Color color;
+        private final Node root;
+        private final AtomicInteger budget;
+        private final TimeControl clock;
+        private final Random random = new Random();
+        private final IntMoveList moves = new IntMoveList();
+        private final UndoRecord[] undos = new UndoRecord[MAX_PLIES];
+
+        Worker(Board board, Color color, Node root, AtomicInteger budget, TimeControl clock) {
+            this.board = board;
+            this.color = color;
+            this.root = root;
+            this.budget = budget;
+            this.clock = clock;
+            for (int i = 0; i < MAX_PLIES; i++) {
+                undos[i] = new UndoRecord();
+            }
+        }
+
+        /**
+         * Does playouts until the budget or the time is spent.
+         */
+        void run() {
+            while (!clock.isHardDeadlinePassed() && budget.getAndDecrement() > 0) {
+                playout();
+            }
+        }
+
+        /**
+         * Walks down the tree, adds a node, plays on randomly, counts the
+         * result in every node of the walk and takes all moves back.
+         */
+        private void playout() {
+            synchronized (root) {
+                root.visits++;
+            }
+            Node node = root;
+            Color side = color;
+            int ply = 0;
+            boolean expanded = false;
+            while (!expanded && !hasLost(board, side) && ply < MAX_PLIES - PLAYOUT_PLIES) {
+                Node next;
+                synchronized (node) {
+                    if (node.untried == null) {
+                        MoveGenerator.generate(board, side, moves);
+                        node.untried = new int[moves.size()];
+                        for (int i = 0; i < moves.size(); i++) {
+                            node.untried[i] = moves.get(i);
+                        }
+                        node.untriedCount = moves.size();
+                        node.children = new Node[moves.size()];
+                    }
+                    if (node.untriedCount > 0) {
+                        int i = random.nextInt(node.untriedCount);
+                        int move = node.untried[i];
+                        node.untried[i] = node.untried[--node.untriedCount];
+                        next = new Node(move, node, side);
+                        node.children[node.childCount++] = next;
+                        expanded = true;
+                    } else if (node.childCount == 0) {
+                        break;
+                    } else {
+                        next = select(node);
+                    }
+                    next.visits++;
+                }
+                board.makeMove(next.move, undos[ply++]);
+                node = next;
+                side = opponent(board, side);
+            }
+            int treePlies = ply;
+            Color winner = null;
+            for (int i = 0; i < PLAYOUT_PLIES; i++) {
+                if (hasLost(board, side)) {
+                    winner = opponent(board, side);
+                    break;
+                }
+                MoveGenerator.generate(board, side, moves);
+                if (moves.size() == 0) {
+                    break;
+                }
+                board.makeMove(pick(moves), undos[ply++]);
+                side = opponent(board, side);
+            }
+            if (winner == null && hasLost(board, side)) {
+                winner = opponent(board, side);
+            } else if (winner == null) {
+                Color other = opponent(board, side);
+                int difference = board.countMarbles(side) - board.countMarbles(other);
+                winner = difference > 0 ? side : difference < 0 ? other : null;
+            }
+            while (ply > treePlies) {
+                board.unmakeMove(undos[--ply]);
+            }
+            for (; node != root; node = node.parent) {
+                synchronized (node.lock()) {
+                    node.wins += winner == null ? 0.5 : winner == node.mover ? 1 : 0;
+                }
+                board.unmakeMove(undos[--ply]);
+            }
+        }
+
+        /**
+         * Returns the child with the highest UCT value. The visits of node are
+         * taken as the sum of those of its children, which are guarded by the
+         * lock that is held.
+         * @requires the lock of node is held and node has children
+         */
+        private Node select(Node node) {
+            int visits = 0;
+            for (int i = 0; i < node.childCount; i++) {
+                visits += node.children[i].visits;
+            }
+            double logVisits = Math.log(visits);
+            Node best = node.children[0];
+            double bestValue = best.uct(logVisits);
+            for (int i = 1; i < node.childCount; i++) {
+                double value = node.children[i].uct(logVisits);
+                if (value > bestValue) {
+                    best = node.children[i];
+                    bestValue = value;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Picks a move of a playout: a move pushing a marble off the board if
+         * there is one, otherwise a random move.
+         */
+        private int pick(IntMoveList list) {
+            for (int i = 0; i < list.size(); i++) {
+                if (PackedMove.isEject(list.get(i))) {
+                    return list.get(i);
+                }
+            }
+            return list.get(random.nextInt(list.size()));
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package abalone.ai;
+
+import abalone.BitBoard;
+import abalone.IntMoveList;
+import abalone.PackedMove;
+
+import java.util.Arrays;
+
+/**
+ * Decides in which order a search tries the moves of a position, since
+ * alpha-beta cuts off the most when the best move is tried first. Moves are
+ * tried in this order:
+ * <ol>
+ * <li>the best move found for the position before, from the
+ * {@link TranspositionTable}
+ * <li>moves that push a marble off the board
+ * <li>other pushes, the most opponent marbles first, then the most own marbles
+ * <li>the killer moves of the ply: moves without a push that caused a cutoff
+ * in another position at the same distance from the root
+ * <li>other moves without a push, by their history: how often and how deep
+ * they caused a cutoff anywhere in the search
+ * </ol>
+ * A list is not sorted at once but the next best move is picked when it is
+ * needed, as most nodes cut off after the first few moves.
+ * Not thread-safe: every search thread has its own ordering.
+ *
+ * @authors Bozhidar Petrov, Daan Pluister
+ */
+public class MoveOrdering {
+
+    // -- Constants --------------------------------------------------
+
+    /** Number of killer moves kept per ply. */
+    public static final int KILLERS = 2;
+
+    private static final int TABLE_SCORE = Integer.MAX_VALUE;
+    private static final int EJECT_SCORE = 3_000_000;
+    private static final int PUSH_SCORE = 2_000_000;
+    private static final int KILLER_SCORE = 1_000_000;
+
+    /** History scores are halved when one gets above this, to stay below killers. */
+    private static final int MAX_HISTORY = KILLER_SCORE / 2;
+
+    /** The bits of a packed move without a push: tail, head and direction. */
+    private static final int QUIET_BITS = 15;
+
+    // -- Instance variables -----------------------------------------
+
+    private final int[][] killers;
+    private final int[] history = new int[1 << QUIET_BITS];
+    private final int[][] scores;
+
+    // -- Constructors -----------------------------------------------
+
+    /**
+     * Makes an ordering for searches of at most maxPly plies.
+     */
+    public MoveOrdering(int maxPly) {
+        killers = new int[maxPly + 1][KILLERS];
+        scores = new int[maxPly + 1][0];
+        clearKillers();
+    }
+
+    // -- Queries ----------------------------------------------------
+
+    /**
+     * Returns true if a move pushes no marbles, so it is ordered by the killer
+     * moves and the history.
+     */
+    public static boolean isQuiet(int move) {
+        return PackedMove.getPushCount(move) == 0;
+    }
+
+    /**
+     * Returns the history score of a move without a push.
+     */
+    public int getHistory(int move) {
+        return history[move & ((1 << QUIET_BITS) - 1)];
+    }
+
+    // -- Commands ---------------------------------------------------
+
+    /**
+     * Scores the moves of a position at a ply, to be taken in order with
+     * {@link #pickNext(IntMoveList, int, int)}.
+     * @param tableMove the move from the transposition table, or
+     *     {@link PackedMove#NONE}
+     */
+    public void score(IntMoveList moves, int ply, int tableMove) {
+        if (scores[ply].length < moves.size()) {
+            scores[ply] = new int[moves.size()];
+        }
+        int[] plyScores = scores[ply];
+        for (int i = 0; i < moves.size(); i++) {
+            plyScores[i] = score(moves.get(i), ply, tableMove);
+        }
+    }
+
+    /**
+     * Moves the best scored move from index i on to index i, so that the
+     * moves up to i are in order.
+     * @requires the moves were scored with {@link #score(IntMoveList, int, int)}
+     *     and the moves before i were picked
+     * @return the move at index i
+     */
+    public int pickNext(IntMoveList moves, int ply, int i) {
+        int[] plyScores = scores[ply];
+        int best = i;
+        for (int j = i + 1; j < moves.size(); j++) {
+            if (plyScores[j] > plyScores[best]) {
+                best = j;
+            }
+        }
+        if (best != i) {
+            moves.swap(i, best);
+            int score = plyScores[i];
+            plyScores[i] = plyScores[best];
+            plyScores[best] = score;
+        }
+        return moves.get(i);
+    }
+
+    /**
+     * Remembers a move that caused a cutoff. Pushes are already tried early,
+     * so only moves without a push become killers and get history.
+     * @param depth the depth that was left to search
+     */
+    public void cutoff(int move, int ply, int depth) {
+        if (!isQuiet(move)) {
+            return;
+        }
+        int[] plyKillers = killers[ply];
+        if (plyKillers[0] != move) {
+            for (int i = KILLERS - 1; i > 0; i--) {
+                plyKillers[i] = plyKillers[i - 1];
+            }
+            plyKillers[0] = move;
+        }
+        int index = move & ((1 << QUIET_BITS) - 1);
+        history[index] += depth * depth;
+        if (history[index] > MAX_HISTORY) {
+            ageHistory();
+        }
+    }
+
+    /**
+     * Prepares for a new search: the killer moves are forgotten and the history
+     * counts for half.
+     */
+    public void newSearch() {
+        clearKillers();
+        ageHistory();
+    }
+
+    // -- Helpers ----------------------------------------------------
+
+    /**
+     * Returns the score of a move, higher to be tried earlier.
+     */
+    private int score(int move, int ply, int tableMove) {
+        if (move == tableMove) {
+            return TABLE_SCORE;
+        }
+        int pushCount = PackedMove.getPushCount(move);
+        if (PackedMove.isEject(move)) {
+            return EJECT_SCORE + pushCount;
+        }
+        if (pushCount > 0) {
+            int size = BitBoard.lineDistance(PackedMove.getTail(move), PackedMove.getHead(move)) + 1;
+            return PUSH_SCORE + pushCount * BitBoard.MAX_GROUP + size;
+        }
+        int[] plyKillers = killers[ply];
+        for (int i = 0; i < KILLERS; i++) {
+            if (plyKillers[i] == move) {
+                return KILLER_SCORE - i;
+            }
+        }
+        return getHistory(move);
+    }
+
+    private void clearKillers() {
+        for (int[] plyKillers : killers) {
+            Arrays.fill(plyKillers, PackedMove.NONE);
+        }
+    }
+
+    private void ageHistory() {
+        for (int i = 0; i < history.length; i++) {
+            history[i] /= 2;
+        }
+    }
+}
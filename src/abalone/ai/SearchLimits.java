@@ -0,0 +1,84 @@
+package abalone.ai;
+
+/**
+ * The budget of a strategy for one move: a time in milliseconds and a number
+ * of positions (nodes) to search, see
+ * {@link Strategy#determineMove(abalone.Board, abalone.Color, SearchLimits)}.
+ * A limit of 0 means no limit. How a search spends the time is decided by a
+ * {@link TimeControl}.
+ *
+ * @authors Bozhidar Petrov, Daan Pluister
+ */
+public final class SearchLimits {
+
+    // -- Constants --------------------------------------------------
+
+    /** No limits: the strategy searches as far as it would on its own. */
+    public static final SearchLimits NONE = new SearchLimits(0, 0);
+
+    // -- Instance variables -----------------------------------------
+
+    private final long moveTime;
+    private final long nodes;
+
+    // -- Constructors -----------------------------------------------
+
+    /**
+     * Makes limits of the given time and nodes per move.
+     * @param moveTime time per move in milliseconds, 0 for no limit
+     * @param nodes positions searched per move, 0 for no limit
+     * @throws IllegalArgumentException if a limit is negative
+     */
+    public SearchLimits(long moveTime, long nodes) {
+        if (moveTime < 0 || nodes < 0) {
+            throw new IllegalArgumentException("Negative limit: " + moveTime + " ms, "
+                    + nodes + " nodes");
+        }
+        this.moveTime = moveTime;
+        this.nodes = nodes;
+    }
+
+    /**
+     * Makes limits of only a time per move.
+     * @param moveTime time per move in milliseconds
+     */
+    public static SearchLimits ofTime(long moveTime) {
+        return new SearchLimits(moveTime, 0);
+    }
+
+    /**
+     * Makes limits of only a number of nodes per move.
+     */
+    public static SearchLimits ofNodes(long nodes) {
+        return new SearchLimits(0, nodes);
+    }
+
+    // -- Queries ----------------------------------------------------
+
+    /**
+     * Returns the time per move in milliseconds, 0 if there is no limit.
+     */
+    public long getMoveTime() {
+        return moveTime;
+    }
+
+    /**
+     * Returns the number of nodes per move, 0 if there is no limit.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns true if neither the time nor the nodes are limited.
+     */
+    public boolean isUnlimited() {
+        return moveTime == 0 && nodes == 0;
+    }
+
+    @Override
+    public String toString() {
+        return (moveTime == 0 ? "no time limit" : moveTime + " ms") + ", "
+                + (nodes == 0 ? "no node limit" : nodes + " nodes");
+    }
+}
@@ -0,0 +1,237 @@
+package abalone.ai;
+
+import abalone.Color;
+import abalone.LocalGame;
+import abalone.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Plays many 2 player games between two strategies without any output during
+ * the games, to compare them. The games are played at the same time on a
+ * fork-join pool, each with its own players and a seeded Random, and the
+ * strategies swap colors every game. The strategies are named as in
+ * {@link LocalGame#createPlayer}.
+ *
+ * @author Bozhidar Petrov, Daan Pluister
+ */
+public class SelfPlayRunner {
+
+    // -- Constants --------------------------------------------------
+
+    /** Default number of games of a run. */
+    public static final int DEFAULT_GAMES = 1000;
+
+    /** Default seed of a run. */
+    public static final long DEFAULT_SEED = 42;
+
+    // -- Instance variables -----------------------------------------
+
+    private final String strategy1;
+    private final String strategy2;
+    private final int threads;
+    private final long seed;
+
+    // -- Constructors -----------------------------------------------
+
+    /**
+     * Makes a runner for games between two strategies.
+     * @param strategy1 name of the first strategy
+     * @param strategy2 name of the second strategy
+     * @param threads number of games played at the same time, at least 1
+     * @param seed of the random choices of the games
+     */
+    public SelfPlayRunner(String strategy1, String strategy2, int threads, long seed) {
+        this.strategy1 = strategy1;
+        this.strategy2 = strategy2;
+        this.threads = threads;
+        this.seed = seed;
+    }
+
+    // -- Commands ---------------------------------------------------
+
+    /**
+     * Plays games and counts the results.
+     * @param games number of games, at least 1
+     * @return the results
+     * @throws IllegalArgumentException if a name is not one of a strategy
+     */
+    public Report run(int games) {
+        makePlayers(0);
+        Random random = new Random(seed);
+        List<Callable<int[]>> tasks = new ArrayList<Callable<int[]>>();
+        for (int i = 0; i < games; i++) {
+            int game = i;
+            long gameSeed = random.nextLong();
+            tasks.add(() -> play(game, gameSeed));
+        }
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        Report report = new Report(strategy1, strategy2);
+        long start = System.nanoTime();
+        try {
+            for (Future<int[]> future : pool.invokeAll(tasks)) {
+                int[] result = future.get();
+                report.add(result[0], result[1]);
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IllegalStateException("Game failed", e);
+        } finally {
+            pool.shutdown();
+        }
+        report.nanos = System.nanoTime() - start;
+        return report;
+    }
+
+    /**
+     * Plays one game.
+     * @return the number of the winning strategy (1 or 2, 0 for a draw) and the
+     *     number of turns
+     */
+    private int[] play(int game, long gameSeed) {
+        Player[] players = makePlayers(game);
+        LocalGame localGame = new LocalGame(players);
+        localGame.setRandom(new Random(gameSeed));
+        Player winner = localGame.play();
+        int first = game % 2;
+        int result = winner == null ? 0 : winner == players[first] ? 1 : 2;
+        return new int[] {result, localGame.getNumberOfTurns()};
+    }
+
+    /**
+     * Makes new players for a game; in odd games the second strategy comes
+     * first, so plays white.
+     */
+    private Player[] makePlayers(int game) {
+        Player[] players = new Player[2];
+        int first = game % 2;
+        players[first] = makePlayer(strategy1);
+        players[1 - first] = makePlayer(strategy2);
+        return players;
+    }
+
+    /**
+     * Makes a computer player of a strategy.
+     * @throws IllegalArgumentException if name is not one of a strategy
+     */
+    private static Player makePlayer(String name) {
+        Player player = LocalGame.createPlayer(null, name, Color.WHITE);
+        if (player.usesStateOfGame()) {
+            throw new IllegalArgumentException("Not a strategy: " + name);
+        }
+        return player;
+    }
+
+    // -- Report -----------------------------------------------------
+
+    /**
+     * The results of a run.
+     */
+    public static class Report {
+        private final String strategy1;
+        private final String strategy2;
+        private int games;
+        private int wins1;
+        private int wins2;
+        private long turns;
+        private long nanos;
+
+        Report(String strategy1, String strategy2) {
+            this.strategy1 = strategy1;
+            this.strategy2 = strategy2;
+        }
+
+        /**
+         * Counts a game.
+         * @param winner 1 or 2, 0 for a draw
+         */
+        void add(int winner, int gameTurns) {
+            games++;
+            turns += gameTurns;
+            if (winner == 1) {
+                wins1++;
+            } else if (winner == 2) {
+                wins2++;
+            }
+        }
+
+        /**
+         * Query.
+         */
+        public int getGames() {
+            return games;
+        }
+
+        /**
+         * Returns the number of games won by strategy 1 or 2.
+         */
+        public int getWins(int strategy) {
+            return strategy == 1 ? wins1 : wins2;
+        }
+
+        /**
+         * Query.
+         */
+        public int getDraws() {
+            return games - wins1 - wins2;
+        }
+
+        /**
+         * Returns the fraction of the games won by strategy 1 or 2.
+         */
+        public double getWinRate(int strategy) {
+            return (double) getWins(strategy) / games;
+        }
+
+        /**
+         * Returns the average number of turns of a game.
+         */
+        public double getAverageLength() {
+            return (double) turns / games;
+        }
+
+        /**
+         * Query.
+         */
+        public double getGamesPerSecond() {
+            return games / (nanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d games in %.1f s (%.1f games/s), %.1f turns per game%n"
+                    + "%s: %d wins (%.1f%%)%n%s: %d wins (%.1f%%)%ndraws: %d (%.1f%%)",
+                    games, nanos / 1e9, getGamesPerSecond(), getAverageLength(),
+                    strategy1, wins1, 100.0 * getWinRate(1),
+                    strategy2, wins2, 100.0 * getWinRate(2),
+                    getDraws(), 100.0 * getDraws() / games);
+        }
+    }
+
+    // -- Main -------------------------------------------------------
+
+    /**
+     * Plays games between two strategies and prints the results.
+     * @param args the two strategies, and optionally the number of games
+     *     (default 1000), threads (default one per processor) and seed
+     *     (default 42)
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: SelfPlayRunner <strategy> <strategy> "
+                    + "[games] [threads] [seed]");
+            return;
+        }
+        int games = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_GAMES;
+        int threads = args.length > 3 ? Integer.parseInt(args[3])
+                : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : DEFAULT_SEED;
+        SelfPlayRunner runner = new SelfPlayRunner(args[0], args[1], threads, seed);
+        System.out.println(runner.run(games));
+    }
+}
@@ -5,16 +5,28 @@ import abalone.ComputerPlayer;
 import abalone.LocalGame;
 import abalone.Player;
 
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * Class used to simulate a large number of games between AI.
  * Specifically 2 player games.
  * In this class an AI usually refers to an array of doubles which
  * characterize its behavior.
+ * The duels of a tournament are played at the same time on a fork-join pool.
+ * All random choices, of the mutations, of the pairings and inside every
+ * duel, come from one seed, so a run with the same seed gives the same
+ * result on any number of cores.
  * 
  * @author Bozhidar Petrov, Daan Pluister
  */
@@ -23,40 +35,80 @@ public class Simulator {
     private static final int roundsPerDuel = 1;
     private static final int generations = 20;
     private static final int mutationsPerGen = 50;
+    private static final long defaultSeed = 42;
+    private static final String defaultSummaryFile = "simulator-summary.csv";
     
-    private static ComputerPlayer[] players;
-    private static Map<Player, Integer> result;
+    /** The pool the duels are played on. */
+    private final ForkJoinPool pool;
+
+    /** Gives the seeds of everything random, drawn in a fixed order. */
+    private final Random random;
+
+    /** Number of duels played in the current generation. */
+    private int duels;
+
+    /**
+     * Makes a simulator.
+     * @param seed of all random choices
+     * @param threads number of duels played at the same time
+     */
+    public Simulator(long seed, int threads) {
+        this.random = new Random(seed);
+        this.pool = new ForkJoinPool(threads);
+    }
     
     /**
      * Runs the program.
+     * @param args optionally the seed and the name of the summary file, by
+     *     default 42 and simulator-summary.csv
      */
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : defaultSeed;
+        String summaryFile = args.length > 1 ? args[1] : defaultSummaryFile;
+        Simulator simulator = new Simulator(seed, Runtime.getRuntime().availableProcessors());
         double[] current = new double[4];
         current[0] = 1;
         current[1] = 10;
         current[2] = 1;
         current[3] = 100;
-        for (int j = 0; j < generations; j++) {
-            current = tournamentRandomElimination(current);
-            System.out.println("winner of generation " + j);
-            System.out.println(factorsToString(current));
+        try (PrintWriter summary = new PrintWriter(new FileWriter(summaryFile))) {
+            summary.println("generation,duels,milliseconds,factors");
+            for (int j = 0; j < generations; j++) {
+                long start = System.currentTimeMillis();
+                current = simulator.tournamentRandomElimination(current);
+                long time = System.currentTimeMillis() - start;
+                System.out.println("winner of generation " + j);
+                System.out.println(factorsToString(current));
+                summary.println(j + "," + simulator.duels + "," + time + ","
+                        + factorsToCsv(current));
+                summary.flush();
+            }
+        } finally {
+            simulator.shutdown();
         }
         System.out.println("Winner:");
         System.out.println(factorsToString(current));
     }
     
+    /**
+     * Stops the threads of the pool.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
     
     /**
      * Plays two versions of the AI against each other.
+     * @param seed of the random choices of the game
      * @return 0 if first AI wins, 1 if second, 2 if draw.
      */
-    private static int play1v1(double[] factors1, double[] factors2) {
-        result = new HashMap<Player, Integer>();
-        players = new ComputerPlayer[2];
+    private static int play1v1(double[] factors1, double[] factors2, long seed) {
+        ComputerPlayer[] players = new ComputerPlayer[2];
         players[0] = new ComputerPlayer(Color.WHITE, new ItsOverAnakinIHaveTheHighGroundStrategy(factors1));
         players[1] = new ComputerPlayer(Color.WHITE, new ItsOverAnakinIHaveTheHighGroundStrategy(factors2));
         LocalGame game = new LocalGame(players);
-        result = game.playNTimes(roundsPerDuel);
+        game.setRandom(new Random(seed));
+        Map<Player, Integer> result = game.playNTimes(roundsPerDuel);
         int highScore = 0;
         Player winner = null;
         for (Player p : result.keySet()) { 
@@ -76,22 +128,57 @@ public class Simulator {
         }
     }
     
+    /**
+     * Plays the duels between pairs[2i] and pairs[2i+1] on the pool, each with
+     * its own seed.
+     * @return the outcomes of the duels in order, see {@link #play1v1}
+     */
+    private int[] playDuels(List<double[]> pairs) {
+        List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+        for (int i = 0; i + 1 < pairs.size(); i += 2) {
+            double[] factors1 = pairs.get(i);
+            double[] factors2 = pairs.get(i + 1);
+            long seed = random.nextLong();
+            tasks.add(() -> play1v1(factors1, factors2, seed));
+        }
+        List<Future<Integer>> futures = pool.invokeAll(tasks);
+        int[] outcomes = new int[futures.size()];
+        for (int i = 0; i < outcomes.length; i++) {
+            try {
+                outcomes[i] = futures.get(i).get();
+            } catch (InterruptedException | ExecutionException e) {
+                throw new IllegalStateException("Duel failed", e);
+            }
+        }
+        duels += outcomes.length;
+        return outcomes;
+    }
+
     /**
      * Creates a tournament where every AI plays against all others.
      * @return the factors of the winning AI
      */
     @SuppressWarnings("unused")
-    private static double[] tournament(double[] factors) {
-        ArrayList<double[]> factorsList = makeMutatedArrays(factors);
+    private double[] tournament(double[] factors) {
+        duels = 0;
+        List<double[]> factorsList = makeMutatedArrays(factors, mutationsPerGen);
+        List<double[]> pairs = new ArrayList<double[]>();
+        for (double[] factors1 : factorsList) {
+            for (double[] factors2 : factorsList) {
+                if (factors1 != factors2) {
+                    pairs.add(factors1);
+                    pairs.add(factors2);
+                }
+            }
+        }
+        int[] outcomes = playDuels(pairs);
         int bestScore = 0;
         double[] winner = factors;
         for (int i = 0; i < factorsList.size(); i++) {
-            int score = 0;
             double[] factors1 = factorsList.get(i);
-            for (int j = 0; j < factorsList.size(); j++) {
-                double[] factors2 = factorsList.get(j);
-                if (factors1 != factors2
-                        && play1v1(factors1, factors2) == 0) {
+            int score = 0;
+            for (int j = 0; j < outcomes.length; j++) {
+                if (pairs.get(2 * j) == factors1 && outcomes[j] == 0) {
                     score++;
                 }
             }
@@ -106,24 +193,37 @@ public class Simulator {
     /**
      * Tournament where two random players play against each other
      * and the loser is thrown out. The last one left is the winner.
+     * The players are paired randomly in rounds, of which all duels are
+     * played at the same time; with an odd number one player sits the
+     * round out.
      * Complexity n.
      * @return the factors of the winning AI
      */
-    private static double[] tournamentRandomElimination(double[] current) {
-        ArrayList<double[]> factorsList = makeMutatedArrays(current);
+    private double[] tournamentRandomElimination(double[] current) {
+        return tournamentRandomElimination(current, mutationsPerGen);
+    }
+    
+    /**
+     * Plays {@link #tournamentRandomElimination(double[])} between current
+     * and the given number of mutations of it. With the same seed the same
+     * AI wins on any number of threads.
+     * @param mutations number of mutated AIs, at least 1
+     * @return the factors of the winning AI
+     */
+    public double[] tournamentRandomElimination(double[] current, int mutations) {
+        duels = 0;
+        List<double[]> factorsList = makeMutatedArrays(current, mutations);
         while (factorsList.size() > 1) {
-            double[] p1 = factorsList.get(
-                    new Random().nextInt(factorsList.size()));
-            factorsList.remove(p1);
-            double[] p2 = factorsList.get(
-                    new Random().nextInt(factorsList.size()));
-            factorsList.remove(p2);
-            int outcome = play1v1(p1, p2);
-            if (outcome == 0) {
-                factorsList.add(p1);
-            } else {
-                factorsList.add(p2);
+            Collections.shuffle(factorsList, random);
+            int[] outcomes = playDuels(factorsList);
+            List<double[]> winners = new ArrayList<double[]>();
+            for (int i = 0; i < outcomes.length; i++) {
+                winners.add(factorsList.get(outcomes[i] == 0 ? 2 * i : 2 * i + 1));
             }
+            if (factorsList.size() % 2 == 1) {
+                winners.add(factorsList.get(factorsList.size() - 1));
+            }
+            factorsList = winners;
         }
         return factorsList.get(0);
     }
@@ -139,15 +239,30 @@ public class Simulator {
         return s;
     }
     
+    /**
+     * Makes the factors a line of comma separated values.
+     */
+    private static String factorsToCsv(double[] factors) {
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < factors.length; i++) {
+            if (i > 0) {
+                s.append(',');
+            }
+            s.append(factors[i]);
+        }
+        return s.toString();
+    }
+
     /**
      * Makes a list of mutated versions of a given AI.
      * @param factors to start with
+     * @param mutations number of mutated versions
      * @return a list of arrays of doubles of same size as given one
      */
-    private static ArrayList<double[]> makeMutatedArrays(double[] factors) {
-        ArrayList<double[]> result = new ArrayList<double[]>();
+    private List<double[]> makeMutatedArrays(double[] factors, int mutations) {
+        List<double[]> result = new ArrayList<double[]>();
         result.add(factors);
-        for (int i = 0; i < mutationsPerGen; i++) {
+        for (int i = 0; i < mutations; i++) {
             double[] mutation = makeMutation(factors.length);
             result.add(mutate(factors, mutation));
         }
@@ -159,10 +274,10 @@ public class Simulator {
      * @param size of the resulting array
      * @return array of doubles
      */
-    private static double[] makeMutation(int size) {
+    private double[] makeMutation(int size) {
         double[] result = new double[size];
         for (int i = 0; i < size; i++) {
-            result[i] = new Random().nextGaussian() + 1;
+            result[i] = random.nextGaussian() + 1;
         }
         return result;
     }
@@ -4,7 +4,7 @@ import abalone.Board;
 import abalone.Color;
 import abalone.Field;
 import abalone.Move;
-import abalone.exceptions.InvalidMoveException;
+import abalone.PieceList;
 
 import java.util.ArrayList;
 
@@ -27,6 +27,26 @@ public interface Strategy {
      */
     public Move determineMove(Board board, Color color);
     
+    /**
+     * Returns a next legal move, searching within the given budget. If the
+     * budget is spent the best move found so far is returned. Strategies
+     * that do not search ignore the budget.
+     * @ensures a valid move
+     * @returns the best move for this strategy
+     * @requires there are possible moves
+     */
+    public default Move determineMove(Board board, Color color, SearchLimits limits) {
+        return determineMove(board, color);
+    }
+    
+    /**
+     * Sets the number of threads the strategy may search with. Strategies that
+     * do not search in parallel ignore it.
+     * @requires threads >= 1
+     */
+    public default void setThreads(int threads) {
+    }
+    
     /**
      * Makes a list of all possible moves for a given color on a given board.
      * @returns list of valid moves
@@ -35,37 +55,27 @@ public interface Strategy {
     public default ArrayList<Move> makeMovesList(Board board, Color color) {
         ArrayList<Move> moveList = new ArrayList<Move>();
         ArrayList<Move> tempMoveList;
-        ArrayList<Field> fieldList = board.getMapOfColors().get(color);
-        int l = fieldList.size();
+        PieceList pieces = board.getPieces(color);
+        int l = pieces.size();
         for (int i = 0; i < l; i++) {
+            Field fieldI = board.getField(pieces.get(i));
             for (int j = 0; j < l; j++) {
-                Move move = new Move(board, color, fieldList.get(i),
-                        fieldList.get(j), 0, 0);
-                try {
-                    move.isValidSelection();
-                } catch (InvalidMoveException e) {
+                Field fieldJ = board.getField(pieces.get(j));
+                Move move = new Move(board, color, fieldI, fieldJ, 0, 0);
+                if (!move.checkSelection().isValid()) {
                     continue;
                 }
                 tempMoveList = new ArrayList<Move>();
-                tempMoveList.add(new Move(board, color, fieldList.get(i),
-                        fieldList.get(j), 1, 0));
-                tempMoveList.add(new Move(board, color, fieldList.get(i),
-                        fieldList.get(j), -1, 0));
-                tempMoveList.add(new Move(board, color, fieldList.get(i),
-                        fieldList.get(j), 0, 1));
-                tempMoveList.add(new Move(board, color, fieldList.get(i),
-                        fieldList.get(j), 0, -1));
-                tempMoveList.add(new Move(board, color, fieldList.get(i),
-                        fieldList.get(j), 1, 1));
-                tempMoveList.add(new Move(board, color, fieldList.get(i),
-                        fieldList.get(j), -1, -1));
+                tempMoveList.add(new Move(board, color, fieldI, fieldJ, 1, 0));
+                tempMoveList.add(new Move(board, color, fieldI, fieldJ, -1, 0));
+                tempMoveList.add(new Move(board, color, fieldI, fieldJ, 0, 1));
+                tempMoveList.add(new Move(board, color, fieldI, fieldJ, 0, -1));
+                tempMoveList.add(new Move(board, color, fieldI, fieldJ, 1, 1));
+                tempMoveList.add(new Move(board, color, fieldI, fieldJ, -1, -1));
                 for (Move m : tempMoveList) {
-                    try {
-                        m.isValidMoveQuick();
-                    } catch (InvalidMoveException e) {
-                        continue;
+                    if (m.check().isValid()) {
+                        moveList.add(m);
                     }
-                    moveList.add(m);
                 }
             }
         }
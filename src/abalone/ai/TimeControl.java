@@ -0,0 +1,103 @@
+package abalone.ai;
+
+/**
+ * Decides when a search for one move stops, given its {@link SearchLimits}.
+ * The clock starts when the time control is made. There are two deadlines:
+ * <ul>
+ * <li>the soft deadline, after which no new iteration of an iterative
+ * deepening search is started, since it would most likely not finish. It is
+ * SOFT_FRACTION of the time, or EASY_FRACTION if the best move has been the
+ * same for STABLE_ITERATIONS iterations.
+ * <li>the hard deadline, at which the search stops wherever it is, a little
+ * before the time is up to leave time to send the move.
+ * </ul>
+ * The node limit is hard as well. A strategy that is stopped plays the best
+ * move it has found so far.
+ *
+ * @authors Bozhidar Petrov, Daan Pluister
+ */
+public class TimeControl {
+
+    // -- Constants --------------------------------------------------
+
+    /** Part of the time after which no new iteration is started. */
+    public static final double SOFT_FRACTION = 0.5;
+
+    /** Part of the time after which no new iteration is started if the best move is stable. */
+    public static final double EASY_FRACTION = 0.15;
+
+    /** Number of iterations the best move has to stay the same to be stable. */
+    public static final int STABLE_ITERATIONS = 4;
+
+    /** Time kept back from the hard deadline, at most a tenth of the time. */
+    public static final long MARGIN = 20;
+
+    // -- Instance variables -----------------------------------------
+
+    private final SearchLimits limits;
+    private final long start;
+    private final long softDeadline;
+    private final long easyDeadline;
+    private final long hardDeadline;
+
+    // -- Constructors -----------------------------------------------
+
+    /**
+     * Starts the clock for a move.
+     */
+    public TimeControl(SearchLimits limits) {
+        this.limits = limits;
+        this.start = System.nanoTime();
+        long time = limits.getMoveTime() * 1_000_000;
+        if (time == 0) {
+            softDeadline = Long.MAX_VALUE;
+            easyDeadline = Long.MAX_VALUE;
+            hardDeadline = Long.MAX_VALUE;
+        } else {
+            softDeadline = start + (long) (time * SOFT_FRACTION);
+            easyDeadline = start + (long) (time * EASY_FRACTION);
+            hardDeadline = start + time - Math.min(MARGIN * 1_000_000, time / 10);
+        }
+    }
+
+    // -- Queries ----------------------------------------------------
+
+    /**
+     * Query.
+     */
+    public SearchLimits getLimits() {
+        return limits;
+    }
+
+    /**
+     * Returns the time since the clock started in milliseconds.
+     */
+    public long getElapsed() {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    /**
+     * Checks if a new iteration may be started.
+     * @param stableIterations number of iterations in a row that found the same
+     *     best move
+     */
+    public boolean canStartIteration(int stableIterations) {
+        long deadline = stableIterations >= STABLE_ITERATIONS ? easyDeadline : softDeadline;
+        return deadline == Long.MAX_VALUE || System.nanoTime() - deadline < 0;
+    }
+
+    /**
+     * Checks if the search has to stop because of the number of nodes.
+     */
+    public boolean isNodeLimitReached(long nodes) {
+        return limits.getNodes() > 0 && nodes >= limits.getNodes();
+    }
+
+    /**
+     * Checks if the search has to stop because of the time. Reads the clock,
+     * so a search should not call it for every node.
+     */
+    public boolean isHardDeadlinePassed() {
+        return hardDeadline != Long.MAX_VALUE && System.nanoTime() - hardDeadline >= 0;
+    }
+}
@@ -0,0 +1,262 @@
+package abalone.ai;
+
+import abalone.PackedMove;
+
+/**
+ * A fixed-size table of search results keyed by the 64-bit hash of a position
+ * (see {@link abalone.Board#hash()}). All memory is allocated when the table
+ * is made: a key and a data array of longs, grouped in buckets of two
+ * entries. The data of an entry packs the score (as a float), the best move,
+ * the depth, the bound type and the search it was stored in:
+ * <ul>
+ * <li>0-31: bits of the score as a float
+ * <li>32-50: best move, with bit 50 set if there is one
+ * <li>51-57: depth
+ * <li>58-59: bound type, 0 for an empty entry
+ * <li>60-63: generation, the number of the search modulo 16
+ * </ul>
+ * A probe returns this data as a long, which is read with the static getters.
+ * The table can be shared by search threads without locks: the key array
+ * holds the key exclusive or-ed with the data, so an entry that is half
+ * written by another thread does not match its key and is taken as a miss.
+ *
+ * @authors Bozhidar Petrov, Daan Pluister
+ */
+public class TranspositionTable {
+
+    // -- Constants --------------------------------------------------
+
+    /** The score is exact. */
+    public static final int EXACT = 1;
+    /** The score is at least the stored score (the search failed high). */
+    public static final int LOWER = 2;
+    /** The score is at most the stored score (the search failed low). */
+    public static final int UPPER = 3;
+
+    /** Default size in megabytes. */
+    public static final int DEFAULT_SIZE = 16;
+
+    /**
+     * How an entry is chosen to be overwritten when a bucket holds two other
+     * positions.
+     */
+    public enum ReplacementPolicy {
+        /**
+         * The first entry of a bucket keeps the deepest result of the current
+         * search and the second always takes what the first does not.
+         */
+        DEPTH_PREFERRED,
+        /**
+         * A new result always goes to the first entry, whose old content moves
+         * to the second, so a bucket holds the two latest positions.
+         */
+        ALWAYS_REPLACE
+    }
+
+    private static final int BUCKET_SIZE = 2;
+    private static final int BYTES_PER_ENTRY = 2 * Long.BYTES;
+
+    private static final int MOVE_SHIFT = 32;
+    private static final long MOVE_MASK = (1L << 18) - 1;
+    private static final long HAS_MOVE = 1L << 50;
+    private static final int DEPTH_SHIFT = 51;
+    private static final int DEPTH_MASK = 0x7F;
+    private static final int BOUND_SHIFT = 58;
+    private static final int GENERATION_SHIFT = 60;
+
+    // -- Instance variables -----------------------------------------
+
+    private final long[] keys;
+    private final long[] data;
+    private final int bucketMask;
+    private final ReplacementPolicy policy;
+    private int generation;
+
+    // -- Constructors -----------------------------------------------
+
+    /**
+     * Makes a table of at most the given size. The number of buckets is the
+     * largest power of two that fits.
+     * @param megabytes size of the table, at least 1
+     * @param policy which entries to overwrite
+     * @throws IllegalArgumentException if megabytes is less than 1
+     */
+    public TranspositionTable(int megabytes, ReplacementPolicy policy) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("Table size below 1 MB: " + megabytes);
+        }
+        long entries = (long) megabytes * 1024 * 1024 / BYTES_PER_ENTRY;
+        int buckets = Integer.highestOneBit((int) Math.min(entries / BUCKET_SIZE, 1 << 29));
+        this.keys = new long[buckets * BUCKET_SIZE];
+        this.data = new long[buckets * BUCKET_SIZE];
+        this.bucketMask = buckets - 1;
+        this.policy = policy;
+    }
+
+    /**
+     * Makes a depth-preferred table of DEFAULT_SIZE megabytes.
+     */
+    public TranspositionTable() {
+        this(DEFAULT_SIZE, ReplacementPolicy.DEPTH_PREFERRED);
+    }
+
+    // -- Queries ----------------------------------------------------
+
+    /**
+     * Returns the number of entries of the table.
+     */
+    public int getCapacity() {
+        return keys.length;
+    }
+
+    /**
+     * Query.
+     */
+    public ReplacementPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Looks up a position.
+     * @param key the hash of the position
+     * @return the data of the entry, or 0 if the position is not in the table
+     */
+    public long probe(long key) {
+        int index = bucket(key);
+        for (int i = index; i < index + BUCKET_SIZE; i++) {
+            long entry = data[i];
+            if (entry != 0 && (keys[i] ^ entry) == key) {
+                return entry;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Query.
+     * @param entry the data returned by a successful probe
+     */
+    public static int getDepth(long entry) {
+        return (int) (entry >>> DEPTH_SHIFT) & DEPTH_MASK;
+    }
+
+    /**
+     * Returns EXACT, LOWER or UPPER.
+     * @param entry the data returned by a successful probe
+     */
+    public static int getBound(long entry) {
+        return (int) (entry >>> BOUND_SHIFT) & 3;
+    }
+
+    /**
+     * Query.
+     * @param entry the data returned by a successful probe
+     */
+    public static double getScore(long entry) {
+        return Float.intBitsToFloat((int) entry);
+    }
+
+    /**
+     * Returns the best move as a packed move, {@link PackedMove#NONE} if none
+     * was stored.
+     * @param entry the data returned by a successful probe
+     */
+    public static int getMove(long entry) {
+        if ((entry & HAS_MOVE) == 0) {
+            return PackedMove.NONE;
+        }
+        return (int) ((entry >>> MOVE_SHIFT) & MOVE_MASK);
+    }
+
+    // -- Commands ---------------------------------------------------
+
+    /**
+     * Stores the result of searching a position, overwriting an entry of its
+     * bucket according to the policy. If the position is already in the table
+     * its entry is replaced, keeping the best move if the new result has none.
+     * @param key the hash of the position
+     * @param depth the depth searched, 0 to 127
+     * @param bound EXACT, LOWER or UPPER
+     * @param score the score found
+     * @param move the best move found, or PackedMove.NONE
+     */
+    public void store(long key, int depth, int bound, double score, int move) {
+        int index = bucket(key);
+        for (int i = index; i < index + BUCKET_SIZE; i++) {
+            long old = data[i];
+            if (old != 0 && (keys[i] ^ old) == key) {
+                if (move == PackedMove.NONE) {
+                    move = getMove(old);
+                }
+                write(i, key, pack(depth, bound, score, move));
+                return;
+            }
+        }
+        long entry = pack(depth, bound, score, move);
+        long first = data[index];
+        if (first == 0) {
+            write(index, key, entry);
+        } else if (policy == ReplacementPolicy.ALWAYS_REPLACE || isOld(first)
+                || depth >= getDepth(first)) {
+            keys[index + 1] = keys[index];
+            data[index + 1] = first;
+            write(index, key, entry);
+        } else {
+            write(index + 1, key, entry);
+        }
+    }
+
+    /**
+     * Marks the start of a new search. Entries of earlier searches are still
+     * found, but are overwritten first.
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0xF;
+    }
+
+    /**
+     * Empties the table.
+     */
+    public void clear() {
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = 0;
+            data[i] = 0;
+        }
+    }
+
+    // -- Helpers ----------------------------------------------------
+
+    /**
+     * Returns the index of the first entry of the bucket of a key.
+     */
+    private int bucket(long key) {
+        return ((int) (key ^ (key >>> 32)) & bucketMask) * BUCKET_SIZE;
+    }
+
+    /**
+     * Writes an entry, with the key exclusive or-ed with the data.
+     */
+    private void write(int i, long key, long entry) {
+        data[i] = entry;
+        keys[i] = key ^ entry;
+    }
+
+    /**
+     * Checks if an entry was stored in an earlier search.
+     */
+    private boolean isOld(long entry) {
+        return (int) (entry >>> GENERATION_SHIFT) != generation;
+    }
+
+    /**
+     * Packs the data of an entry, see the class comment.
+     */
+    private long pack(int depth, int bound, double score, int move) {
+        long entry = Float.floatToRawIntBits((float) score) & 0xFFFFFFFFL;
+        if (move != PackedMove.NONE) {
+            entry |= ((move & MOVE_MASK) << MOVE_SHIFT) | HAS_MOVE;
+        }
+        return entry | ((long) (depth & DEPTH_MASK) << DEPTH_SHIFT)
+                | ((long) bound << BOUND_SHIFT) | ((long) generation << GENERATION_SHIFT);
+    }
+}
@@ -87,6 +87,15 @@ public class ProtocolMessages {
     public static final String GAME_END_MESSAGE_GAME_WON = "game won";
     public static final String GAME_END_MESSAGE_DRAW = "draw";
     public static final String GAME_END_MESSAGE_DISCONNECTION = "disconnection";
+
+    /**
+     * Optional first argument of a lobby request: list all lobbies (the default)
+     * or only those that are not full and not in game. An optional second
+     * argument asks for one page of the list, starting at 1.
+     * <code>pm.LOBBY + pm.DELIMITER + filter + pm.DELIMITER + page</code>
+     */
+    public static final String LOBBY_FILTER_ALL = "all";
+    public static final String LOBBY_FILTER_OPEN = "open";
     
     /**
      * The following strings are possible error messages that can be combined with an error of type 1.
@@ -8,7 +8,12 @@ import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.net.Socket;
 
-
+/**
+ * Handles the commands of one client. This class reads and writes lines on a
+ * blocking socket in its own thread; subclasses can use another transport by
+ * calling {@link #handleLine(String)} for every line received and overriding
+ * {@link #sendMessage(String)} and {@link #closeConnection()}.
+ */
 public class AbaloneClientHandler implements Runnable {
 
     /** The socket and In- and OutputStreams. */
@@ -36,18 +41,29 @@ public class AbaloneClientHandler implements Runnable {
      * @param name The name of this ClientHandler
      */
     public AbaloneClientHandler(Socket sock, AbaloneServer srv, AbaloneServerBrowser browser, String name) {
+        this(srv, browser, name);
         try {
             in = new BufferedReader(new InputStreamReader(sock.getInputStream()));
             out = new BufferedWriter(new OutputStreamWriter(sock.getOutputStream()));
             this.sock = sock;
-            this.srv = srv;
-            this.browser = browser;
-            this.name = name;
         } catch (IOException e) {
             shutdown();
         }
     }
 
+    /**
+     * Constructs a new AbaloneClientHandler without a socket, for subclasses
+     * that bring their own transport.
+     * 
+     * @param srv  The connected server
+     * @param name The name of this ClientHandler
+     */
+    protected AbaloneClientHandler(AbaloneServer srv, AbaloneServerBrowser browser, String name) {
+        this.srv = srv;
+        this.browser = browser;
+        this.name = name;
+    }
+
     /**
      * Continuously listens to client input and forwards the input to the
      * {@link #handleCommand(String)} method.
@@ -57,8 +73,7 @@ public class AbaloneClientHandler implements Runnable {
         try {
             msg = in.readLine();
             while (msg != null) {
-                System.out.println("> [" + name + "] Incoming: " + msg);
-                handleCommand(msg);
+                handleLine(msg);
                 msg = in.readLine();
             }
             shutdown();
@@ -67,6 +82,17 @@ public class AbaloneClientHandler implements Runnable {
         }
     }
 
+    /**
+     * Handles one line received from the client.
+     * 
+     * @param msg the line, without the line terminator
+     * @throws IOException if an IO errors occur.
+     */
+    protected void handleLine(String msg) throws IOException {
+        System.out.println("> [" + name + "] Incoming: " + msg);
+        handleCommand(msg);
+    }
+
     /**
      * Handles commands received from the client by calling the according methods at
      * the AbaloneServer.
@@ -89,7 +115,13 @@ public class AbaloneClientHandler implements Runnable {
                         s = browser.getHello();
                         break;
                     case ProtocolMessages.LOBBY:
-                        s = browser.doLobbies();
+                        if (cmd.length == 1) {
+                            s = browser.doLobbies();
+                        } else if (cmd.length > 3) {
+                            s = browser.doError(2, "Unexpected argument expected at most 2");
+                        } else {
+                            s = browser.doLobbies(cmd[1], cmd.length == 3 ? cmd[2] : null);
+                        }
                         break;
                     case ProtocolMessages.JOIN:
                         if (cmd.length != 4) {
@@ -112,6 +144,7 @@ public class AbaloneClientHandler implements Runnable {
                         break;
                     case ProtocolMessages.EXIT:
                         lobby.exitGame(this);
+                        browser.leaveLobby(this, lobby);
                         break;
                     default:
                         s = srv.doError(1, ProtocolMessages.INVALID_COMMAND
@@ -135,6 +168,7 @@ public class AbaloneClientHandler implements Runnable {
                         break;
                     case ProtocolMessages.EXIT:
                         lobby.exitGame(this);
+                        browser.leaveLobby(this, lobby);
                         break;
                     default:
                         s = srv.doError(1, ProtocolMessages.INVALID_COMMAND
@@ -150,11 +184,23 @@ public class AbaloneClientHandler implements Runnable {
     }
 
     /**
-     * Shut down the connection to this client by closing the socket and the In- and
-     * OutputStreams.
+     * Shut down the connection to this client using {@link #closeConnection()}
+     * and remove it from its lobby and the server.
      */
-    private void shutdown() {
+    protected void shutdown() {
         System.out.println("> [" + name + "] Shutting down.");
+        AbaloneServerLobby left = lobby;
+        if (left != null) {
+            browser.leaveLobby(this, left);
+        }
+        closeConnection();
+        srv.removeClient(this);
+    }
+
+    /**
+     * Closes the socket and the In- and OutputStreams.
+     */
+    protected void closeConnection() {
         try {
             in.close();
             out.close();
@@ -162,7 +208,13 @@ public class AbaloneClientHandler implements Runnable {
         } catch (IOException e) {
             e.printStackTrace();
         }
-        srv.removeClient(this);
+    }
+
+    /**
+     * Query.
+     */
+    public String getName() {
+        return name;
     }
 
     /**
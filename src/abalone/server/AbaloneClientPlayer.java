@@ -26,7 +26,7 @@ public class AbaloneClientPlayer extends Player {
         System.out.println("Server board: \n" + stateOfGame);
         System.out.println("current turn of player: " + playerName + " (" + getColor() + ")");
         lobby.doTurn(getColor());
-        return lobby.getMove();
+        return lobby.getMove(getColor());
     }
 
     /**
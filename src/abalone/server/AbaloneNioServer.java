@@ -0,0 +1,88 @@
+package abalone.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * An {@link AbaloneServer} that serves all clients with a small fixed number
+ * of {@link NioEventLoop} threads instead of a thread per client, so that many
+ * idle connections cost little more than their buffers. The thread of the
+ * server accepts connections and hands them to the loops in turn. It speaks
+ * the same protocol, through {@link NioClientHandler}.
+ *
+ * @authors Daan Pluister, Bozhidar Petrov
+ */
+public class AbaloneNioServer extends AbaloneServer {
+
+    // -- Instance variables -----------------------------------------
+
+    private ServerSocketChannel serverChannel;
+    private final NioEventLoop[] loops;
+    private int nextLoop;
+
+    // -- Constructors -----------------------------------------------
+
+    /**
+     * Constructs a server with the given number of event loop threads.
+     *
+     * @requires threads >= 1
+     */
+    public AbaloneNioServer(int threads) {
+        super();
+        loops = new NioEventLoop[threads];
+    }
+
+    /**
+     * Constructs a server with an event loop thread per processor, at most 4.
+     */
+    public AbaloneNioServer() {
+        this(Math.min(4, Runtime.getRuntime().availableProcessors()));
+    }
+
+    // -- Commands ---------------------------------------------------
+
+    /**
+     * Opens a server channel on the given port.
+     */
+    @Override
+    protected void bind(int port) throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.bind(new InetSocketAddress(port));
+        } catch (IOException e) {
+            serverChannel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Starts the event loops and hands every accepted connection to the next
+     * loop. When accepting fails the loops are stopped.
+     */
+    @Override
+    protected void acceptClients() throws IOException {
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new NioEventLoop();
+            new Thread(loops[i], "NioEventLoop-" + i).start();
+        }
+        try {
+            while (true) {
+                SocketChannel channel = serverChannel.accept();
+                channel.configureBlocking(false);
+                NioEventLoop loop = loops[nextLoop];
+                nextLoop = (nextLoop + 1) % loops.length;
+                NioClientHandler handler = new NioClientHandler(channel, this,
+                        getBrowser(), newClientName(), loop);
+                addClient(handler);
+                loop.register(handler);
+            }
+        } finally {
+            for (NioEventLoop loop : loops) {
+                loop.close();
+            }
+            serverChannel.close();
+        }
+    }
+}
@@ -4,13 +4,26 @@ import abalone.exceptions.ExitProgram;
 import abalone.protocol.ProtocolMessages;
 import abalone.protocol.ServerProtocol;
 import java.io.IOException;
+import java.lang.reflect.Method;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class AbaloneServer implements Runnable, ServerProtocol {
 
+    // -- Constants --------------------------------------------------
+
+    /**
+     * Thread.startVirtualThread(Runnable), or null if this Java version has no
+     * virtual threads.
+     */
+    private static final Method START_VIRTUAL_THREAD = findStartVirtualThread();
+
+    /** Whether client handlers and games run on virtual threads. */
+    private static volatile boolean virtualThreads;
+
     // -- Instance variables -----------------------------------------
     
     /** The ServerSocket of this AbaloneServer. */
@@ -35,7 +48,7 @@ public class AbaloneServer implements Runnable, ServerProtocol {
      * next_client_no.
      */
     public AbaloneServer() {
-        clients = new ArrayList<>();
+        clients = Collections.synchronizedList(new ArrayList<>());
         view = new AbaloneServerTui();
         nextClientNo = 1;
     }
@@ -54,15 +67,7 @@ public class AbaloneServer implements Runnable, ServerProtocol {
                 // Sets up the AbaloneServer
                 setup();
 
-                while (true) {
-                    Socket sock = ssock.accept();
-                    String name = "Client " + String.format("%02d", nextClientNo++);
-                    view.showMessage("New client [" + name + "] connected!");
-                    AbaloneClientHandler handler = new AbaloneClientHandler(
-                            sock, this, browser, name);
-                    new Thread(handler).start();
-                    clients.add(handler);
-                }
+                acceptClients();
 
             } catch (ExitProgram e1) {
                 // If setup() throws an ExitProgram exception,
@@ -79,6 +84,40 @@ public class AbaloneServer implements Runnable, ServerProtocol {
         view.showMessage("See you later!");
     }
 
+    /**
+     * Accepts clients until an IO error occurs, and starts a new
+     * AbaloneClientHandler thread for every connecting client.
+     * 
+     * @throws IOException if accepting fails
+     */
+    protected void acceptClients() throws IOException {
+        while (true) {
+            Socket sock = ssock.accept();
+            AbaloneClientHandler handler = new AbaloneClientHandler(
+                    sock, this, browser, newClientName());
+            startThread(handler);
+            addClient(handler);
+        }
+    }
+
+    /**
+     * Makes the name of a newly connected client and shows it.
+     */
+    protected String newClientName() {
+        String name = "Client " + String.format("%02d", nextClientNo++);
+        view.showMessage("New client [" + name + "] connected!");
+        return name;
+    }
+
+    /**
+     * Opens the socket of the server.
+     * 
+     * @throws IOException if the port can not be used
+     */
+    protected void bind(int port) throws IOException {
+        ssock = new ServerSocket(port);
+    }
+
     /**
      * Sets up a new Browser using {@link #setupBrowser()} and opens a new ServerSocket
      * at localhost on a user-defined port.
@@ -95,15 +134,16 @@ public class AbaloneServer implements Runnable, ServerProtocol {
         // First, initialize the Browser.
         setupBrowser();
 
-        ssock = null;
-        while (ssock == null) {
+        boolean bound = false;
+        while (!bound) {
             int port = view.getInt("Please enter the server port.");
 
             // try to open a new ServerSocket
             try {
                 view.showMessage("Attempting to open a socket at 127.0.0.1 "
                          + "on port " + port + "...");
-                ssock = new ServerSocket(port);
+                bind(port);
+                bound = true;
                 view.showMessage("Server started at port " + port);
             } catch (IOException e) {
                 view.showMessage("ERROR: could not create a socket on "
@@ -119,6 +159,27 @@ public class AbaloneServer implements Runnable, ServerProtocol {
         browser = new AbaloneServerBrowser();        
     }
 
+    /**
+     * Adds a clientHandler to the client list.
+     */
+    protected void addClient(AbaloneClientHandler client) {
+        clients.add(client);
+    }
+
+    /**
+     * Query.
+     */
+    protected AbaloneServerBrowser getBrowser() {
+        return browser;
+    }
+
+    /**
+     * Query.
+     */
+    protected AbaloneServerView getView() {
+        return view;
+    }
+
     /**
      * Removes a clientHandler from the client list.
      * 
@@ -147,11 +208,75 @@ public class AbaloneServer implements Runnable, ServerProtocol {
         return errorTypeString + ProtocolMessages.DELIMITER + errorMessage;
     }
     
+    // ------------------ Threads --------------------------
+
+    /**
+     * Query if client handlers and games run on virtual threads.
+     */
+    public static boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Lets client handlers and games run on virtual threads, which are cheap
+     * enough to have one for each of many thousands of clients. Only has effect
+     * if the Java version supports them.
+     * 
+     * @return if virtual threads are used from now on
+     */
+    public static boolean setVirtualThreads(boolean virtual) {
+        virtualThreads = virtual && START_VIRTUAL_THREAD != null;
+        return virtualThreads;
+    }
+
+    /**
+     * Starts a thread running task, a virtual one if {@link #usesVirtualThreads()}.
+     * 
+     * @return the started thread
+     */
+    protected static Thread startThread(Runnable task) {
+        if (virtualThreads) {
+            try {
+                return (Thread) START_VIRTUAL_THREAD.invoke(null, task);
+            } catch (ReflectiveOperationException e) {
+                e.printStackTrace();
+            }
+        }
+        Thread thread = new Thread(task);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Looks up Thread.startVirtualThread, which exists from Java 21 on.
+     */
+    private static Method findStartVirtualThread() {
+        try {
+            return Thread.class.getMethod("startVirtualThread", Runnable.class);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
     // ------------------ Main --------------------------
 
-    /** Start a new AbaloneServer. */
+    /**
+     * Start a new AbaloneServer. With the argument --nio the server handles
+     * all clients on a few event loop threads, see {@link AbaloneNioServer}.
+     * With the argument --virtual client handlers and games run on virtual
+     * threads.
+     */
     public static void main(String[] args) {
-        AbaloneServer server = new AbaloneServer();
+        boolean nio = false;
+        for (String arg : args) {
+            if (arg.equals("--nio")) {
+                nio = true;
+            } else if (arg.equals("--virtual") && !setVirtualThreads(true)) {
+                System.out.println("Virtual threads need Java 21 or later, "
+                        + "using platform threads.");
+            }
+        }
+        AbaloneServer server = nio ? new AbaloneNioServer() : new AbaloneServer();
         System.out.println("Welcome to the Abalone Server! Starting...");
         new Thread(server).start();
     }
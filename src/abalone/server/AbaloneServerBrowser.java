@@ -4,19 +4,38 @@ import abalone.exceptions.LobbyException;
 import abalone.protocol.ProtocolMessages;
 import abalone.protocol.ServerBrowserProtocol;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class AbaloneServerBrowser extends AbaloneServer implements ServerBrowserProtocol {
     
+    // -- Constants --------------------------------------------------
+
+    /** Number of lobbies on a page of the lobby list. */
+    public static final int LOBBIES_PER_PAGE = 20;
+
     // -- Instance variables -----------------------------------------
     
-    /** The list of lobbies. */
-    protected ArrayList<AbaloneServerLobby> lobbies;
+    /**
+     * The lobbies by name. Lobbies are added and removed only with compute, so
+     * joining and leaving a lobby is atomic with creating and removing it.
+     */
+    protected ConcurrentMap<String, AbaloneServerLobby> lobbies;
+
+    /** Counts the changes to the lobbies, see {@link #lobbyChanged()}. */
+    private final AtomicLong version;
+
+    /** The lobby list as last built, not rebuilt until a lobby changes. */
+    private volatile Listing listing;
     
     // -- Constructors -----------------------------------------------
     
     public AbaloneServerBrowser() {
         super();
-        lobbies = new ArrayList<AbaloneServerLobby>();
+        lobbies = new ConcurrentHashMap<String, AbaloneServerLobby>();
+        version = new AtomicLong();
     }
 
     // -- Queries ----------------------------------------------------
@@ -26,7 +45,7 @@ public class AbaloneServerBrowser extends AbaloneServer implements ServerBrowser
      * @return
      */
     public AbaloneServerLobby getLobby(AbaloneClientHandler client) {
-        for (AbaloneServerLobby lobby : lobbies) {
+        for (AbaloneServerLobby lobby : lobbies.values()) {
             if (lobby.hasClient(client) && ! lobby.inGame()) {
                 return lobby;
             }
@@ -44,35 +63,144 @@ public class AbaloneServerBrowser extends AbaloneServer implements ServerBrowser
 
     @Override
     public String doLobbies() {
-        String s = ProtocolMessages.EOT;
-        for (AbaloneServerLobby lobby : lobbies) {
-            s = lobby.toString() + "\n" + s;
+        return getListing().all;
+    }
+
+    /**
+     * Like {@link #doLobbies()}, but lists only open lobbies (not full and not
+     * in game) if filter is pm.LOBBY_FILTER_OPEN, and only the given page of
+     * LOBBIES_PER_PAGE lobbies if page is not null.
+     * 
+     * @return the lobby list, or an error of type 2 if an argument is invalid
+     */
+    public String doLobbies(String filter, String page) {
+        Listing current = getListing();
+        boolean openOnly = filter.equals(ProtocolMessages.LOBBY_FILTER_OPEN);
+        if (!openOnly && !filter.equals(ProtocolMessages.LOBBY_FILTER_ALL)) {
+            return doError(2, "Unexpected argument expected "
+                    + ProtocolMessages.LOBBY_FILTER_ALL + " or " + ProtocolMessages.LOBBY_FILTER_OPEN);
+        }
+        if (page == null) {
+            return openOnly ? current.open : current.all;
         }
-        return s;
+        int pageNumber;
+        try {
+            pageNumber = Integer.parseInt(page);
+        } catch (NumberFormatException e) {
+            pageNumber = 0;
+        }
+        if (pageNumber < 1) {
+            return doError(2, "Unexpected argument expected a page number from 1");
+        }
+        List<String> lines = openOnly ? current.openLines : current.allLines;
+        int from = Math.min(lines.size(), (pageNumber - 1) * LOBBIES_PER_PAGE);
+        int to = Math.min(lines.size(), from + LOBBIES_PER_PAGE);
+        return join(lines.subList(from, to));
     }
 
     @Override
     public String doJoin(AbaloneClientHandler client, String lobbyName, String playerName, String teamName) {
-        AbaloneServerLobby addedToLobby = null;
-        for (AbaloneServerLobby lobby : lobbies) {
-            if (lobby.getName().equals(lobbyName)) {
-                try {
-                    // try to add client to lobby
-                    lobby.addClient(client, playerName, teamName);
-                    addedToLobby = lobby;
-                } catch (LobbyException e) {
-                    // send an error of type 3
-                    return doError(3, e.getMessage());
-                }
+        LobbyException[] error = new LobbyException[1];
+        AbaloneServerLobby addedToLobby = lobbies.compute(lobbyName, (name, lobby) -> {
+            if (lobby == null) {
+                return new AbaloneServerLobby(this, name, client, playerName, teamName);
             }
+            try {
+                // try to add client to lobby
+                lobby.addClient(client, playerName, teamName);
+            } catch (LobbyException e) {
+                error[0] = e;
+            }
+            return lobby;
+        });
+        if (error[0] != null) {
+            // send an error of type 3
+            return doError(3, error[0].getMessage());
         }
-        if (addedToLobby == null) {
-            addedToLobby = new AbaloneServerLobby(lobbyName, client, playerName, teamName);
-            lobbies.add(addedToLobby);
-        }
+        lobbyChanged();
         addedToLobby.sendMessageToLobby(ProtocolMessages.JOIN + ProtocolMessages.DELIMITER
                 + playerName + ProtocolMessages.DELIMITER + teamName);
         return addedToLobby.toString();
     }
 
+    /**
+     * Removes client from lobby, and removes lobby from the browser if it is
+     * empty afterwards.
+     * 
+     * @requires lobby.hasClient(client)
+     */
+    public void leaveLobby(AbaloneClientHandler client, AbaloneServerLobby lobby) {
+        lobbies.compute(lobby.getName(), (name, current) -> {
+            lobby.delClient(client);
+            return current == lobby && lobby.getNumberOfPlayers() == 0 ? null : current;
+        });
+        lobbyChanged();
+    }
+
+    /**
+     * Marks the lobby list as out of date. To be called after a lobby is
+     * created, removed, joined or left, when a name in it changes, and when
+     * its game starts or ends.
+     */
+    public void lobbyChanged() {
+        version.incrementAndGet();
+    }
+
+    // -- Lobby list -------------------------------------------------
+
+    /**
+     * The lobby list at one version, both as lines and as the response to a
+     * lobby request, for all lobbies and for the open ones.
+     */
+    private static class Listing {
+        private final long version;
+        private final List<String> allLines;
+        private final List<String> openLines;
+        private final String all;
+        private final String open;
+
+        Listing(long version, List<String> allLines, List<String> openLines) {
+            this.version = version;
+            this.allLines = allLines;
+            this.openLines = openLines;
+            this.all = join(allLines);
+            this.open = join(openLines);
+        }
+    }
+
+    /**
+     * Returns the lobby list, rebuilding it only if a lobby changed since it
+     * was last built. A change during the rebuild leaves the new list out of
+     * date, so it is built again on the next request.
+     */
+    private Listing getListing() {
+        Listing current = listing;
+        long currentVersion = version.get();
+        if (current == null || current.version != currentVersion) {
+            List<String> allLines = new ArrayList<String>();
+            List<String> openLines = new ArrayList<String>();
+            for (AbaloneServerLobby lobby : lobbies.values()) {
+                String line = lobby.toString();
+                allLines.add(line);
+                if (lobby.isOpen()) {
+                    openLines.add(line);
+                }
+            }
+            current = new Listing(currentVersion, allLines, openLines);
+            listing = current;
+        }
+        return current;
+    }
+
+    /**
+     * Returns the lines, each followed by a newline, and pm.EOT.
+     */
+    private static String join(List<String> lines) {
+        StringBuilder s = new StringBuilder();
+        for (String line : lines) {
+            s.append(line).append('\n');
+        }
+        return s.append(ProtocolMessages.EOT).toString();
+    }
+
 }
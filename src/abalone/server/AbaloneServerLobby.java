@@ -9,14 +9,18 @@ import abalone.exceptions.LobbyException;
 import abalone.protocol.ProtocolMessages;
 import abalone.protocol.ServerLobbyProtocol;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 
 public class AbaloneServerLobby extends AbaloneServer implements ServerLobbyProtocol {
     /**
-     * .
+     * The state of the clients in the lobby. The maps are concurrent, since the
+     * handler of every client and the game thread read them; joining and leaving
+     * are synchronized on the lobby.
      * @invariance for clients in ready.keySet(): client.getPlayerName() != null &&
      *             client.getTeamName() != null.
      * @invariance 1 <= ready.size() <= game.MAX_PLAYERS
@@ -26,35 +30,39 @@ public class AbaloneServerLobby extends AbaloneServer implements ServerLobbyProt
     private Map<AbaloneClientHandler, String> teamNames;
     private Map<AbaloneClientHandler, Color> colors;
     /**
-     * the nextMove which is always null except when a next move is determined.
+     * The turn the game thread is waiting for a move of, null if it is not
+     * waiting. Set by the game thread and completed by the client handler.
      * 
-     * @invariance if nextMove != null then nextMove.isValidMove() == true
+     * @invariance every move completed is valid and of turn.color
      */
-    private Move nextMove;
+    private volatile Turn turn;
     private String name;
+    /** The browser listing this lobby. */
+    private AbaloneServerBrowser browser;
+    /** The lobby as in the lobby list, see {@link #toString()}. */
+    private volatile String description;
     /** The game object of the lobby. */
     private ServerGame game;
 
     private Thread gameThread;
-    
-    private Object object;
 
     /**
-     * constructor for a new lobby that adds the first client.
+     * constructor for a new lobby of browser that adds the first client.
      */
-    public AbaloneServerLobby(String name, AbaloneClientHandler client, String playerName, String teamName) {
-        ready = new HashMap<AbaloneClientHandler, Boolean>();
-        playerNames = new HashMap<AbaloneClientHandler, String>();
-        teamNames = new HashMap<AbaloneClientHandler, String>();
-        colors = new HashMap<AbaloneClientHandler, Color>();
-        object = new Object();
+    public AbaloneServerLobby(AbaloneServerBrowser browser, String name, AbaloneClientHandler client,
+            String playerName, String teamName) {
+        this.browser = browser;
+        this.name = name;
+        ready = new ConcurrentHashMap<AbaloneClientHandler, Boolean>();
+        playerNames = new ConcurrentHashMap<AbaloneClientHandler, String>();
+        teamNames = new ConcurrentHashMap<AbaloneClientHandler, String>();
+        colors = new ConcurrentHashMap<AbaloneClientHandler, Color>();
         try {
             addClient(client, playerName, teamName);
         } catch (LobbyException e) {
             // This should not happen since adding a client to empty lobby always works.
             e.printStackTrace();
         }
-        this.name = name;
     }
 
     /**
@@ -64,7 +72,8 @@ public class AbaloneServerLobby extends AbaloneServer implements ServerLobbyProt
      * @requires client.getPlayerName() != null && client.getTeamName() != null
      * @ensures getReady(client) == false;
      */
-    public void addClient(AbaloneClientHandler client, String playerName, String teamName) throws LobbyException {
+    public synchronized void addClient(AbaloneClientHandler client, String playerName, String teamName)
+            throws LobbyException {
         if (ready.size() >= Game.MAX_PLAYERS) {
             throw new LobbyException(ProtocolMessages.ERROR_MESSAGE_LOBBY_FULL);
         }
@@ -75,6 +84,7 @@ public class AbaloneServerLobby extends AbaloneServer implements ServerLobbyProt
         resetReady();
         this.playerNames.put(client, playerName);
         this.teamNames.put(client, teamName);
+        describe();
         client.setLobby(this);
     }
 
@@ -141,10 +151,12 @@ public class AbaloneServerLobby extends AbaloneServer implements ServerLobbyProt
      * 
      * @ensures if hasClient(client) then getNumberOfPlayers() decreases with 1.
      */
-    public void delClient(AbaloneClientHandler client) {
+    public synchronized void delClient(AbaloneClientHandler client) {
         ready.remove(client);
         playerNames.remove(client);
         teamNames.remove(client);
+        colors.remove(client);
+        describe();
         client.setLobby(null);
     }
 
@@ -206,8 +218,13 @@ public class AbaloneServerLobby extends AbaloneServer implements ServerLobbyProt
         return playerNames.get(client);
     }
 
-    public void setPlayerName(AbaloneClientHandler client, String playerName) {
+    /**
+     * Setter for the playerName of the client, which is shown in the lobby list.
+     */
+    public synchronized void setPlayerName(AbaloneClientHandler client, String playerName) {
         this.playerNames.put(client, playerName);
+        describe();
+        browser.lobbyChanged();
     }
 
     /**
@@ -221,8 +238,13 @@ public class AbaloneServerLobby extends AbaloneServer implements ServerLobbyProt
         return teamNames.get(client);
     }
 
-    public void setTeamName(AbaloneClientHandler client, String teamName) {
+    /**
+     * Setter for the teamName of the client, which is shown in the lobby list.
+     */
+    public synchronized void setTeamName(AbaloneClientHandler client, String teamName) {
         this.teamNames.put(client, teamName);
+        describe();
+        browser.lobbyChanged();
     }
 
     public Color getColor(AbaloneClientHandler client) {
@@ -238,14 +260,26 @@ public class AbaloneServerLobby extends AbaloneServer implements ServerLobbyProt
      * <code>pm.LOBBY + pm.DELIMITER + lobbyName +
      * pm.DELIMITER + pm.PLAYER + pm.DELIMITER + player1Name + pm.DELIMITER +
      * player1teamName + etc</code>.
+     * It is made only when the players change, see {@link #describe()}.
      */
     public String toString() {
-        String s = ProtocolMessages.LOBBY + ProtocolMessages.DELIMITER + name;
+        return description;
+    }
+
+    /**
+     * Makes the description returned by {@link #toString()}.
+     * 
+     * @requires the lock of this lobby is held
+     */
+    private void describe() {
+        StringBuilder s = new StringBuilder();
+        s.append(ProtocolMessages.LOBBY).append(ProtocolMessages.DELIMITER).append(name);
         for (AbaloneClientHandler client : getClients()) {
-            s += ProtocolMessages.DELIMITER + ProtocolMessages.PLAYER + ProtocolMessages.DELIMITER
-                    + playerNames.get(client) + ProtocolMessages.DELIMITER + teamNames.get(client);
+            s.append(ProtocolMessages.DELIMITER).append(ProtocolMessages.PLAYER)
+                    .append(ProtocolMessages.DELIMITER).append(playerNames.get(client))
+                    .append(ProtocolMessages.DELIMITER).append(teamNames.get(client));
         }
-        return s;
+        description = s.toString();
     }
 
     /**
@@ -266,6 +300,13 @@ public class AbaloneServerLobby extends AbaloneServer implements ServerLobbyProt
         return (game != null);
     }
 
+    /**
+     * Query if the lobby can be joined: it is not full and not in game.
+     */
+    public boolean isOpen() {
+        return !inGame() && getNumberOfPlayers() < Game.MAX_PLAYERS;
+    }
+
     // -- Server Game methods
     // --------------------------------------------------------
 
@@ -274,18 +315,23 @@ public class AbaloneServerLobby extends AbaloneServer implements ServerLobbyProt
      */
     public void setupGame() {
         game = new ServerGame(this);
+        browser.lobbyChanged();
     }
 
     /**
-     * starts the game.
+     * starts the game, on a virtual thread if the server uses them.
      */
     public void startGame() {
-        gameThread = new Thread(game);
-        gameThread.start();
+        gameThread = startThread(game);
     }
 
+    /**
+     * Opens the turn of color for a move, see {@link #getMove(Color)}, and
+     * announces it. Called by the game thread.
+     */
     @Override
     public void doTurn(Color color) {
+        turn = new Turn(color);
         sendMessageToLobby(ProtocolMessages.TURN + ProtocolMessages.DELIMITER + getProtocolColor(color));
     }
 
@@ -319,6 +365,7 @@ public class AbaloneServerLobby extends AbaloneServer implements ServerLobbyProt
         }
         gameThread.interrupt();
         game = null;
+        browser.lobbyChanged();
         return null;
     }
 
@@ -355,9 +402,14 @@ public class AbaloneServerLobby extends AbaloneServer implements ServerLobbyProt
     @Override
     public String doMove(AbaloneClientHandler client, String pos1, String pos2, String des1) {
         Color color = colors.get(client);
+        Turn current = turn;
+        ServerGame currentGame = game;
+        if (current == null || current.color != color || currentGame == null) {
+            return doError(3, "not your turn");
+        }
         Move move = null;
         try {
-            move = game.getBoard().parseMovePattern(color, pos1 + " " + pos2 + " " + des1);
+            move = currentGame.getBoard().parseMovePattern(color, pos1 + " " + pos2 + " " + des1);
         } catch (InvalidMoveException e1) {
             return (doError(2, "Unexcpected arguments we want the form m;a1;b2;c3"));
         }
@@ -366,13 +418,16 @@ public class AbaloneServerLobby extends AbaloneServer implements ServerLobbyProt
         } catch (InvalidMoveException e) {
             return Character.toString(ProtocolMessages.UNEXPECTED_MOVE);
         }
-        synchronized (object) {
-            nextMove = move;
-            object.notifyAll();
+        // the game thread waits for this lock after the move, so the move is
+        // announced before the next turn
+        synchronized (current) {
+            if (!current.move.complete(move)) {
+                return doError(3, "not your turn");
+            }
+            sendMessageToLobby(ProtocolMessages.MOVE + ProtocolMessages.DELIMITER + pos1
+                    + ProtocolMessages.DELIMITER + pos2
+                    + ProtocolMessages.DELIMITER + des1);
         }
-        sendMessageToLobby(ProtocolMessages.MOVE + ProtocolMessages.DELIMITER + pos1
-                + ProtocolMessages.DELIMITER + pos2
-                + ProtocolMessages.DELIMITER + des1);
         return null;
     }
 
@@ -387,23 +442,43 @@ public class AbaloneServerLobby extends AbaloneServer implements ServerLobbyProt
     }
 
     /**
-     * returns the nextMove when nextMove is set to not null.
+     * Waits for the client of color to send a valid move and returns it. The
+     * turn is closed afterwards, so no other move is taken for it.
      * 
-     * @return
+     * @requires doTurn(color) was called by this thread
+     * @return the move, or null if the waiting thread is interrupted
      */
-    public Move getMove() {
-        Move toReturnMove;
-        synchronized (object) {
-            try {
-                object.wait();
-            } catch (InterruptedException e) {
-                e.printStackTrace();
+    public Move getMove(Color color) {
+        Turn current = turn;
+        if (current == null || current.color != color) {
+            return null;
+        }
+        try {
+            Move move = current.move.get();
+            synchronized (current) {
+                return move;
             }
-            toReturnMove = nextMove;
-            nextMove = null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            return null;
+        } finally {
+            current.move.cancel(false);
+            turn = null;
+        }
+    }
+
+    /**
+     * A turn waiting for a move of its color.
+     */
+    private static class Turn {
+        private final Color color;
+        private final CompletableFuture<Move> move = new CompletableFuture<Move>();
+
+        private Turn(Color color) {
+            this.color = color;
         }
-        nextMove = null;
-        return toReturnMove;
     }
 
 }
@@ -0,0 +1,200 @@
+package abalone.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * An {@link AbaloneClientHandler} on a non-blocking channel, driven by a
+ * {@link NioEventLoop} instead of a thread of its own. Received bytes are cut
+ * into lines at every newline (a carriage return before it is dropped), the
+ * same framing BufferedReader.readLine() uses. Messages sent from any thread
+ * are put in a write queue, which the event loop writes out as far as the
+ * channel accepts them.
+ *
+ * @authors Daan Pluister, Bozhidar Petrov
+ */
+public class NioClientHandler extends AbaloneClientHandler {
+
+    // -- Constants --------------------------------------------------
+
+    private static final int BUFFER_SIZE = 4096;
+
+    /** Longest line accepted; a client sending longer lines is disconnected. */
+    private static final int MAX_LINE = 64 * 1024;
+
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator()
+            .getBytes(StandardCharsets.UTF_8);
+
+    // -- Instance variables -----------------------------------------
+
+    private final SocketChannel channel;
+    private final NioEventLoop loop;
+    private SelectionKey key;
+
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+    /** The part of the current line received so far. */
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+    private final Queue<ByteBuffer> writeQueue = new ConcurrentLinkedQueue<>();
+    private volatile boolean closed;
+
+    // -- Constructors -----------------------------------------------
+
+    /**
+     * Constructs a handler for a channel. It starts receiving once the loop has
+     * registered it, see {@link NioEventLoop#register(NioClientHandler)}.
+     *
+     * @param channel the non-blocking channel of the client
+     * @param loop the event loop that serves the channel
+     */
+    public NioClientHandler(SocketChannel channel, AbaloneServer srv,
+            AbaloneServerBrowser browser, String name, NioEventLoop loop) {
+        super(srv, browser, name);
+        this.channel = channel;
+        this.loop = loop;
+    }
+
+    // -- Event loop -------------------------------------------------
+
+    /**
+     * Registers the channel for reading with the selector of the loop.
+     * Called by the loop thread.
+     */
+    void register(Selector selector) {
+        try {
+            key = channel.register(selector, SelectionKey.OP_READ, this);
+        } catch (ClosedChannelException e) {
+            shutdown();
+        }
+    }
+
+    /**
+     * Reads what is available and handles every complete line.
+     * Called by the loop thread.
+     */
+    void onReadable() {
+        try {
+            int read = channel.read(readBuffer);
+            if (read == -1) {
+                shutdown();
+                return;
+            }
+            readBuffer.flip();
+            while (readBuffer.hasRemaining()) {
+                byte b = readBuffer.get();
+                if (b == '\n') {
+                    handleLine(takeLine());
+                } else if (line.size() < MAX_LINE) {
+                    line.write(b);
+                } else {
+                    shutdown();
+                    return;
+                }
+            }
+            readBuffer.clear();
+        } catch (IOException e) {
+            shutdown();
+        }
+    }
+
+    /**
+     * Writes queued messages until the queue is empty or the channel does not
+     * take more. In the last case the loop is asked to call again when the
+     * channel is writable. Called by the loop thread.
+     */
+    void onWritable() {
+        if (key == null || !key.isValid()) {
+            return;
+        }
+        try {
+            ByteBuffer buffer = writeQueue.peek();
+            while (buffer != null) {
+                channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+                writeQueue.poll();
+                buffer = writeQueue.peek();
+            }
+            key.interestOps(SelectionKey.OP_READ);
+        } catch (IOException e) {
+            shutdown();
+        }
+    }
+
+    /**
+     * Returns the line received so far without a trailing carriage return, and
+     * starts a new one.
+     */
+    private String takeLine() {
+        byte[] bytes = line.toByteArray();
+        line.reset();
+        int length = bytes.length;
+        if (length > 0 && bytes[length - 1] == '\r') {
+            length--;
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    // -- Transport --------------------------------------------------
+
+    /**
+     * Queues a protocol message followed by a line separator and asks the
+     * loop to write it. Can be called from any thread.
+     */
+    @Override
+    public void sendMessage(String msg) {
+        if (closed) {
+            return;
+        }
+        byte[] bytes = msg.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.length + LINE_SEPARATOR.length);
+        buffer.put(bytes).put(LINE_SEPARATOR).flip();
+        writeQueue.add(buffer);
+        loop.requestWrite(this);
+    }
+
+    /**
+     * Closes the channel, once.
+     */
+    @Override
+    protected void shutdown() {
+        if (!closed) {
+            super.shutdown();
+        }
+    }
+
+    /**
+     * Cancels the registration with the loop and closes the channel.
+     */
+    @Override
+    protected void closeConnection() {
+        closed = true;
+        writeQueue.clear();
+        if (key != null) {
+            key.cancel();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Clients of this handler are served by the event loop, so there is
+     * nothing to run.
+     */
+    @Override
+    public void run() {
+    }
+}
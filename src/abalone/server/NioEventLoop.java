@@ -0,0 +1,108 @@
+package abalone.server;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * One thread of the {@link AbaloneNioServer}: a selector that reads from and
+ * writes to the channels of its clients. Other threads hand it new clients and
+ * pending writes through queues, which it picks up when woken up, so only this
+ * thread ever touches its selector and selection keys.
+ *
+ * @authors Daan Pluister, Bozhidar Petrov
+ */
+public class NioEventLoop implements Runnable {
+
+    // -- Instance variables -----------------------------------------
+
+    private final Selector selector;
+
+    /** Clients to register with the selector. */
+    private final Queue<NioClientHandler> registrations = new ConcurrentLinkedQueue<>();
+
+    /** Clients that have messages in their write queue. */
+    private final Queue<NioClientHandler> writeRequests = new ConcurrentLinkedQueue<>();
+
+    // -- Constructors -----------------------------------------------
+
+    /**
+     * Opens the selector of the loop.
+     *
+     * @throws IOException if the selector can not be opened
+     */
+    public NioEventLoop() throws IOException {
+        selector = Selector.open();
+    }
+
+    // -- Commands ---------------------------------------------------
+
+    /**
+     * Hands a new client to this loop. Can be called from any thread.
+     */
+    public void register(NioClientHandler client) {
+        registrations.add(client);
+        selector.wakeup();
+    }
+
+    /**
+     * Asks the loop to write the queued messages of a client. Can be called from
+     * any thread.
+     */
+    public void requestWrite(NioClientHandler client) {
+        writeRequests.add(client);
+        selector.wakeup();
+    }
+
+    /**
+     * Stops the loop by closing its selector.
+     */
+    public void close() {
+        try {
+            selector.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Waits for channels to be ready and lets their clients read or write, until
+     * the selector is closed.
+     */
+    public void run() {
+        while (selector.isOpen()) {
+            try {
+                selector.select();
+            } catch (IOException e) {
+                e.printStackTrace();
+                return;
+            }
+            for (NioClientHandler client = registrations.poll(); client != null;
+                    client = registrations.poll()) {
+                client.register(selector);
+            }
+            for (NioClientHandler client = writeRequests.poll(); client != null;
+                    client = writeRequests.poll()) {
+                client.onWritable();
+            }
+            if (!selector.isOpen()) {
+                return;
+            }
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                NioClientHandler client = (NioClientHandler) key.attachment();
+                if (key.isValid() && key.isReadable()) {
+                    client.onReadable();
+                }
+                if (key.isValid() && key.isWritable()) {
+                    client.onWritable();
+                }
+            }
+        }
+    }
+}
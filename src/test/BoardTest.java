@@ -4,6 +4,7 @@ import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.fail;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.ArrayList;
@@ -12,10 +13,15 @@ import java.util.Map;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import abalone.BitBoard;
 import abalone.Board;
 import abalone.Color;
 import abalone.Marble;
 import abalone.Move;
+import abalone.PieceList;
+import abalone.UndoRecord;
+import abalone.Zobrist;
+import abalone.ai.RandomStrategy;
 import abalone.exceptions.InvalidMoveException;
 import abalone.exceptions.MarbleKilledException;
 import abalone.Field;
@@ -111,6 +117,20 @@ public class BoardTest {
 		assertNotEquals(copy.toString(), board.toString());
 	}
 
+	/**
+	 * Test that the shared marble of a color cannot be recolored, while a new
+	 * marble can.
+	 */
+	@Test
+	public void testSharedMarble() {
+		assertTrue(Marble.of(Color.BLACK) == Marble.of(Color.BLACK));
+		assertThrows(UnsupportedOperationException.class,
+				() -> Marble.of(Color.BLACK).setColor(Color.WHITE));
+		assertEquals(Color.BLACK, Marble.of(Color.BLACK).getColor());
+		m.setColor(Color.BLUE);
+		assertEquals(Color.BLUE, m.getColor());
+	}
+
 	/**
 	 * Tests the map of colors by checking whether there are 14 marbles of each
 	 * color in the beginning, and if every field in the map is indeed of the color
@@ -148,6 +168,61 @@ public class BoardTest {
 		testMapOfColors();
 	}
 
+	/**
+	 * Tests the geometry of the bitboard: there are 61 fields, shifting a single
+	 * field gives its neighbor, and the masks agree with the map of colors.
+	 */
+	@Test
+	public void testBitBoard() {
+		assertEquals(61, BitBoard.CELLS);
+		for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+			for (int dir = 0; dir < BitBoard.DIRECTIONS; dir++) {
+				int neighbor = BitBoard.neighbor(cell, dir);
+				long shifted = BitBoard.shift(1L << cell, dir);
+				if (neighbor == -1) {
+					assertEquals(0L, shifted);
+				} else {
+					assertEquals(1L << neighbor, shifted);
+					assertEquals(cell, BitBoard.neighbor(neighbor, dir ^ 1));
+				}
+			}
+		}
+		for (Color c : board.getMapOfColors().keySet()) {
+			long mask = 0;
+			for (Field f : board.getMapOfColors().get(c)) {
+				mask |= 1L << BitBoard.index(f.getRow(), f.getCol());
+			}
+			assertEquals(board.getBitBoard().getMask(c), mask);
+		}
+	}
+
+	/**
+	 * Test the precomputed rays, lines and groups against the neighbor table.
+	 */
+	@Test
+	public void testLineTables() {
+		assertEquals(156, BitBoard.groupsOf2().length);
+		assertEquals(129, BitBoard.groupsOf3().length);
+		for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+			for (int dir = 0; dir < BitBoard.DIRECTIONS; dir++) {
+				int[] ray = BitBoard.ray(cell, dir);
+				int next = BitBoard.neighbor(cell, dir);
+				for (int i = 0; i < ray.length; i++) {
+					assertEquals(next, ray[i]);
+					assertEquals(dir, BitBoard.lineDirection(cell, ray[i]));
+					assertEquals(i + 1, BitBoard.lineDistance(cell, ray[i]));
+					assertEquals(i < 2, BitBoard.groupMask(cell, ray[i]) != 0);
+					next = BitBoard.neighbor(next, dir);
+				}
+				assertEquals(-1, next);
+			}
+		}
+		// A1 and B3 are not on a line
+		assertEquals(-1, BitBoard.lineDistance(BitBoard.index(0, 0), BitBoard.index(1, 2)));
+		assertEquals(0L, BitBoard.groupMask(BitBoard.index(0, 0), BitBoard.index(1, 2)));
+		assertEquals(7L, BitBoard.groupMask(BitBoard.index(0, 0), BitBoard.index(0, 2)));
+	}
+
 	/**
 	 * Test whether rotations work.
 	 */
@@ -234,6 +309,177 @@ public class BoardTest {
 		assertTrue(board.getFieldContent(3, 3).getColor().toString().contains("W"));
 	}
 	
+	/**
+	 * Test whether makeMove gives the same board as performing the move on a
+	 * deep copy, and whether unmakeMove restores the board, for every move of
+	 * both colors. Also checks a move that pushes a marble off the board.
+	 */
+	@Test
+	public void testMakeUnmakeMove() {
+		board.setField(3, 0, new Marble(Color.BLACK));
+		board.setField(2, 0, null);
+		board.setField(4, 0, new Marble(Color.BLACK));
+		board.setField(5, 1, new Marble(Color.WHITE));
+		board.setField(6, 2, new Marble(Color.WHITE));
+		board.setField(7, 3, new Marble(Color.WHITE));
+		String before = board.toString();
+		boolean killed = false;
+		for (Color c : new Color[] {Color.WHITE, Color.BLACK}) {
+			for (Move move : new RandomStrategy().makeMovesList(board, c)) {
+				Board copy = board.deepCopy();
+				try {
+					move.deepCopy(copy).perform();
+				} catch (InvalidMoveException e) {
+					fail();
+				} catch (MarbleKilledException e) {
+					killed = true;
+				}
+				UndoRecord undo = board.makeMove(move);
+				assertEquals(copy.toString(), board.toString());
+				assertPiecesMatchBitBoard(board);
+				assertPiecesMatchBitBoard(copy);
+				assertEquals(undo.getEjected() != null, board.marbleKilled);
+				board.unmakeMove(undo);
+				assertEquals(before, board.toString());
+				assertFalse(board.marbleKilled);
+			}
+		}
+		assertTrue(killed);
+	}
+
+	/**
+	 * Test that the hash is kept up to date by moves, including pushes and
+	 * ejections, and that it depends on the side to move.
+	 */
+	@Test
+	public void testHash() {
+		board.setField(3, 0, new Marble(Color.BLACK));
+		board.setField(2, 0, null);
+		board.setField(4, 0, new Marble(Color.BLACK));
+		board.setField(5, 1, new Marble(Color.WHITE));
+		board.setField(6, 2, new Marble(Color.WHITE));
+		board.setField(7, 3, new Marble(Color.WHITE));
+		board.setSideToMove(Color.WHITE);
+		long before = board.hash();
+		assertEquals(Zobrist.compute(board.getBitBoard(), Color.WHITE), before);
+		assertEquals(before, board.deepCopy().hash());
+		for (Move move : new RandomStrategy().makeMovesList(board, Color.WHITE)) {
+			UndoRecord undo = board.makeMove(move);
+			assertEquals(Color.BLACK, board.getSideToMove());
+			assertEquals(Zobrist.compute(board.getBitBoard(), Color.BLACK), board.hash());
+			assertNotEquals(before, board.hash());
+			board.unmakeMove(undo);
+			assertEquals(before, board.hash());
+		}
+		board.setSideToMove(Color.BLACK);
+		assertNotEquals(before, board.hash());
+		board.setSideToMove(Color.WHITE);
+		assertEquals(before, board.hash());
+	}
+
+	/**
+	 * Test the table of distances from the center and that the sums of the
+	 * board are kept up to date by moves, including ejections.
+	 */
+	@Test
+	public void testCenterDistance() {
+		assertEquals(0, BitBoard.centerDistance(BitBoard.index(4, 4)));
+		assertEquals(1, BitBoard.centerDistance(BitBoard.index(3, 4)));
+		assertEquals(4, BitBoard.centerDistance(BitBoard.index(3, 5)));
+		assertEquals(16, BitBoard.centerDistance(BitBoard.index(0, 0)));
+		assertEquals(16, BitBoard.centerDistance(BitBoard.index(8, 4)));
+		assertCenterDistanceMatches(board);
+		board.setField(3, 0, new Marble(Color.BLACK));
+		board.setField(2, 0, null);
+		board.setField(4, 0, new Marble(Color.BLACK));
+		board.setField(5, 1, new Marble(Color.WHITE));
+		board.setField(6, 2, new Marble(Color.WHITE));
+		board.setField(7, 3, new Marble(Color.WHITE));
+		assertCenterDistanceMatches(board);
+		int white = board.getCenterDistance(Color.WHITE);
+		int black = board.getCenterDistance(Color.BLACK);
+		for (Move move : new RandomStrategy().makeMovesList(board, Color.WHITE)) {
+			UndoRecord undo = board.makeMove(move);
+			assertCenterDistanceMatches(board);
+			assertCenterDistanceMatches(board.deepCopy());
+			board.unmakeMove(undo);
+			assertEquals(white, board.getCenterDistance(Color.WHITE));
+			assertEquals(black, board.getCenterDistance(Color.BLACK));
+		}
+		board.reset();
+		assertEquals(0, board.getCenterDistance(Color.WHITE));
+	}
+
+	/**
+	 * Test that the counts of groups of 2 and spans of 3 are kept up to date by
+	 * moves, including ejections.
+	 */
+	@Test
+	public void testGroupCounts() {
+		assertEquals(BitBoard.groupsOf3().length, BitBoard.spansOf3().length);
+		assertGroupCountsMatch(board);
+		board.setField(3, 0, new Marble(Color.BLACK));
+		board.setField(2, 0, null);
+		board.setField(4, 0, new Marble(Color.BLACK));
+		board.setField(5, 1, new Marble(Color.WHITE));
+		board.setField(6, 2, new Marble(Color.WHITE));
+		board.setField(7, 3, new Marble(Color.WHITE));
+		assertGroupCountsMatch(board);
+		for (Color c : new Color[] {Color.WHITE, Color.BLACK}) {
+			for (Move move : new RandomStrategy().makeMovesList(board, c)) {
+				UndoRecord undo = board.makeMove(move);
+				assertGroupCountsMatch(board);
+				assertGroupCountsMatch(board.deepCopy());
+				board.unmakeMove(undo);
+				assertGroupCountsMatch(board);
+			}
+		}
+		board.reset();
+		assertEquals(0, board.countGroupsOf2(Color.WHITE));
+		assertEquals(0, board.countSpansOf3(Color.WHITE));
+	}
+
+	/**
+	 * Checks that the counts of groups of the board are those of its marbles.
+	 */
+	private void assertGroupCountsMatch(Board b) {
+		for (Color c : Color.values()) {
+			long mask = b.getBitBoard().getMask(c);
+			assertEquals(BitBoard.countGroups(mask, BitBoard.groupsOf2()), b.countGroupsOf2(c));
+			assertEquals(BitBoard.countGroups(mask, BitBoard.spansOf3()), b.countSpansOf3(c));
+		}
+	}
+
+	/**
+	 * Checks that the sums of the distances from the center of the board are
+	 * those of the marbles on it.
+	 */
+	private void assertCenterDistanceMatches(Board b) {
+		for (Color c : Color.values()) {
+			int sum = 0;
+			for (int i = 0; i < b.countMarbles(c); i++) {
+				sum += BitBoard.centerDistance(b.getPieces(c).get(i));
+			}
+			assertEquals(sum, b.getCenterDistance(c));
+		}
+	}
+
+	/**
+	 * Checks that the lists of pieces of the board contain exactly the fields of
+	 * the masks of the bitboard, in increasing order.
+	 */
+	private void assertPiecesMatchBitBoard(Board b) {
+		for (Color c : Color.values()) {
+			PieceList pieces = b.getPieces(c);
+			long mask = b.getBitBoard().getMask(c);
+			assertEquals(Long.bitCount(mask), b.countMarbles(c));
+			for (int i = 0; i < pieces.size(); i++) {
+				assertEquals(Long.numberOfTrailingZeros(mask), pieces.get(i));
+				mask &= mask - 1;
+			}
+		}
+	}
+
 	/**
 	 * test parseMovePattern.
 	 */
@@ -0,0 +1,55 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import abalone.Board;
+import abalone.Color;
+import abalone.Game;
+import abalone.LocalGame;
+import abalone.Move;
+import abalone.Player;
+import abalone.ai.RandomStrategy;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the turns of a {@link Game}.
+ * 
+ * @authors Bozhidar Petrov, Daan Pluister
+ */
+public class GameTest {
+
+    /**
+     * Checks that the side to move of the board is the current color of the
+     * game on every turn, also after a player made an invalid move.
+     */
+    @Test
+    public void testSideToMoveAfterInvalidMove() {
+        Player[] players = new Player[2];
+        Game[] game = new Game[1];
+        int[] invalidMoves = new int[1];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = new Player("Player " + i, null) {
+                private RandomStrategy strategy = new RandomStrategy();
+
+                @Override
+                public Move determineMove(Board board, String stateOfGame) {
+                    assertEquals(game[0].getCurrentColor(), board.getSideToMove());
+                    if (invalidMoves[0] == 0) {
+                        // the center is empty at the start
+                        invalidMoves[0]++;
+                        return new Move(board, getColor(), 4, 4, 4, 4, 4, 5);
+                    }
+                    return strategy.determineMove(board, getColor());
+                }
+            };
+        }
+        game[0] = new LocalGame(players);
+        game[0].setRandom(new Random(1));
+        game[0].play();
+        assertEquals(1, invalidMoves[0]);
+        assertTrue(game[0].getNumberOfTurns() > 1);
+        assertEquals(game[0].getCurrentColor(), game[0].getBoard().getSideToMove());
+    }
+}
@@ -7,6 +7,7 @@ import static org.junit.jupiter.api.Assertions.fail;
 import abalone.Board;
 import abalone.Color;
 import abalone.Move;
+import abalone.MoveStatus;
 import abalone.exceptions.InvalidMoveException;
 import abalone.exceptions.MarbleKilledException;
 import org.junit.jupiter.api.BeforeEach;
@@ -531,6 +532,21 @@ class MoveTest {
         assertTrue(msg.contains("not adjacent"));
     }
     
+    /**
+     * Test if check returns the reason a move is invalid without throwing.
+     */
+    @Test
+    public void testCheck() {
+        assertEquals(MoveStatus.VALID, new Move(board, Color.WHITE, 0, 0, 2, 2, 1, 1).check());
+        assertEquals(MoveStatus.SELECTION_TOO_LONG,
+                new Move(board, Color.BLACK, 4, 1, 4, 4, 4, 2).check());
+        assertEquals(MoveStatus.NOT_ADJACENT, new Move(board, Color.WHITE, 0, 0, 2, 2, 2, 2).check());
+        assertEquals(MoveStatus.LATERAL_PUSH, new Move(board, Color.BLACK, 6, 4, 8, 4, 5, 3).check());
+        assertEquals(MoveStatus.NOT_OCCUPIED, new Move(board, Color.BLACK, 0, 0, 0, 0, 1, 1).check());
+        assertEquals(MoveStatus.VALID, new Move(board, Color.WHITE, 0, 0, 0, 2, 3, 3).checkSelection());
+        assertEquals(MoveStatus.NOT_IN_LINE, new Move(board, Color.WHITE, 1, 0, 0, 1, 3, 3).checkSelection());
+    }
+    
     @Test
     public void deepCopy() {
         Move m1 = new Move(board, Color.WHITE, 0, 0, 2, 2, 1, 1);
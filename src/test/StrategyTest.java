@@ -1,16 +1,42 @@
 package test;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
+import abalone.BitBoard;
 import abalone.Board;
 import abalone.Color;
+import abalone.ComputerPlayer;
+import abalone.IntMoveList;
+import abalone.Marble;
 import abalone.Move;
+import abalone.MoveGenerator;
+import abalone.MoveStatus;
+import abalone.PackedMove;
+import abalone.Perft;
+import abalone.UndoRecord;
+import abalone.ai.AlphaBetaStrategy;
+import abalone.ai.EvaluationCache;
 import abalone.ai.ItsOverAnakinIHaveTheHighGroundStrategy;
+import abalone.ai.MctsStrategy;
+import abalone.ai.MoveOrdering;
 import abalone.ai.RandomStrategy;
+import abalone.ai.SearchLimits;
+import abalone.ai.SelfPlayRunner;
+import abalone.ai.Simulator;
+import abalone.ai.TimeControl;
+import abalone.ai.TranspositionTable;
+import abalone.ai.TranspositionTable.ReplacementPolicy;
 import abalone.exceptions.InvalidMoveException;
 import abalone.exceptions.MarbleKilledException;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -117,6 +143,78 @@ public class StrategyTest {
         }
     }
     
+    /**
+     * Checks whether the generator of packed moves finds the same moves as
+     * makeMovesList during random games: every packed move converts to a valid
+     * move and back, and both give the same set of resulting boards. Also
+     * checks that generatePushes gives exactly the pushes, in the same order.
+     */
+    @Test
+    public void testMoveGenerator() {
+        IntMoveList list = new IntMoveList();
+        IntMoveList pushes = new IntMoveList();
+        int pushCount = 0;
+        UndoRecord undo = new UndoRecord();
+        Random random = new Random(3);
+        Color color = Color.WHITE;
+        for (int turn = 0; turn < 60; turn++) {
+            MoveGenerator.generate(board, color, list);
+            Set<String> generated = new HashSet<String>();
+            for (int i = 0; i < list.size(); i++) {
+                int packed = list.get(i);
+                Move move = PackedMove.toMove(board, color, packed);
+                assertEquals(MoveStatus.VALID, move.check());
+                assertEquals(packed, PackedMove.fromMove(board, move));
+                board.makeMove(packed, undo);
+                generated.add(board.toString());
+                board.unmakeMove(undo);
+            }
+            assertEquals(list.size(), generated.size());
+            Set<String> expected = new HashSet<String>();
+            for (Move move : randomStrategy.makeMovesList(board, color)) {
+                board.makeMove(move, undo);
+                expected.add(board.toString());
+                board.unmakeMove(undo);
+            }
+            assertEquals(expected, generated);
+            MoveGenerator.generatePushes(board, color, pushes);
+            int index = 0;
+            for (int i = 0; i < list.size(); i++) {
+                if (PackedMove.getPushCount(list.get(i)) > 0) {
+                    assertEquals(list.get(i), pushes.get(index++));
+                }
+            }
+            assertEquals(index, pushes.size());
+            pushCount += index;
+            board.makeMove(list.get(random.nextInt(list.size())), undo);
+            color = color == Color.WHITE ? Color.BLACK : Color.WHITE;
+        }
+        assertTrue(pushCount > 0);
+    }
+
+    /**
+     * Checks the conversion of packed moves to and from the protocol form.
+     */
+    @Test
+    public void testPackedMoveProtocol() {
+        try {
+            int packed = PackedMove.fromProtocolString(board, Color.WHITE, "a1;c3;b2");
+            assertEquals("A1;C3;B2", PackedMove.toProtocolString(packed));
+            assertEquals(BitBoard.index(0, 0), PackedMove.getTail(packed));
+            assertEquals(BitBoard.index(2, 2), PackedMove.getHead(packed));
+            assertEquals(BitBoard.direction(1, 1), PackedMove.getDirection(packed));
+            assertEquals(0, PackedMove.getPushCount(packed));
+        } catch (InvalidMoveException e) {
+            fail();
+        }
+        try {
+            PackedMove.fromProtocolString(board, Color.WHITE, "a1;c3;c3");
+            fail();
+        } catch (InvalidMoveException e) {
+            assertTrue(e.getMessage().contains("not adjacent"));
+        }
+    }
+
     /**
      * Checks whether the distance finding method works.
      */
@@ -149,4 +247,317 @@ public class StrategyTest {
     public void testCountTriplets() {
         assertEquals(advancedStrategy.countTriplets(board, Color.WHITE), 22.1, 0.01);
     }
+    
+    /**
+     * Checks that the alpha-beta search leaves the board as it was, plays a
+     * valid move and takes a marble when it can.
+     */
+    @Test
+    public void testAlphaBeta() {
+        board.setField(4, 0, new Marble(Color.BLACK));
+        board.setField(4, 1, new Marble(Color.WHITE));
+        board.setField(4, 2, new Marble(Color.WHITE));
+        String before = board.toString();
+        long hash = board.hash();
+        AlphaBetaStrategy alphaBeta = new AlphaBetaStrategy(2, 0, 0,
+                advancedStrategy.getFactors());
+        Move move = alphaBeta.determineMove(board, Color.WHITE);
+        assertEquals(before, board.toString());
+        assertEquals(hash, board.hash());
+        assertEquals(2, alphaBeta.getCompletedDepth());
+        assertEquals(MoveStatus.VALID, move.check());
+        assertTrue(PackedMove.isEject(PackedMove.fromMove(board, move)));
+        
+        alphaBeta = new AlphaBetaStrategy(1, 0, 0, advancedStrategy.getFactors());
+        assertEquals(AlphaBetaStrategy.DEFAULT_QUIESCENCE_DEPTH, alphaBeta.getQuiescenceDepth());
+        move = alphaBeta.determineMove(board, Color.WHITE);
+        assertEquals(before, board.toString());
+        assertTrue(alphaBeta.getNodes() > 0);
+        assertTrue(PackedMove.isEject(PackedMove.fromMove(board, move)));
+        
+        alphaBeta = new AlphaBetaStrategy(AlphaBetaStrategy.MAX_DEPTH, 0, 500,
+                advancedStrategy.getFactors());
+        move = alphaBeta.determineMove(board, Color.WHITE);
+        assertEquals(500, alphaBeta.getNodes());
+        assertEquals(MoveStatus.VALID, move.check());
+    }
+    
+    /**
+     * Checks that moves are tried in the order of the move ordering: the table
+     * move, ejections, pushes of more marbles, killer moves and the history.
+     * Also checks the statistics of the cutoffs of a search.
+     */
+    @Test
+    public void testMoveOrdering() {
+        int table = PackedMove.encode(1, 1, 0, 0, false);
+        int quiet = PackedMove.encode(2, 2, 0, 0, false);
+        int killer = PackedMove.encode(3, 3, 0, 0, false);
+        int history = PackedMove.encode(4, 4, 0, 0, false);
+        int push = PackedMove.encode(5, 6, 0, 1, false);
+        int bigPush = PackedMove.encode(5, 7, 0, 2, false);
+        int eject = PackedMove.encode(8, 9, 0, 1, true);
+        MoveOrdering ordering = new MoveOrdering(4);
+        ordering.cutoff(killer, 2, 1);
+        ordering.cutoff(history, 3, 3);
+        ordering.cutoff(push, 2, 5);
+        assertEquals(9, ordering.getHistory(history));
+        assertEquals(0, ordering.getHistory(push));
+        IntMoveList moves = new IntMoveList();
+        for (int move : new int[] {quiet, history, push, killer, eject, table, bigPush}) {
+            moves.add(move);
+        }
+        ordering.score(moves, 2, table);
+        int[] expected = {table, eject, bigPush, push, killer, history, quiet};
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], ordering.pickNext(moves, 2, i));
+        }
+        ordering.newSearch();
+        assertEquals(4, ordering.getHistory(history));
+        
+        AlphaBetaStrategy alphaBeta = new AlphaBetaStrategy(3, 0, 0,
+                advancedStrategy.getFactors());
+        alphaBeta.determineMove(board, Color.WHITE);
+        assertTrue(alphaBeta.getCutoffs() > 0);
+        assertTrue(alphaBeta.getCutoffs() <= alphaBeta.getExpandedNodes());
+        assertTrue(alphaBeta.getFirstMoveCutoffRate() > 0.5);
+        assertTrue(alphaBeta.getFirstMoveCutoffRate() <= 1);
+    }
+    
+    /**
+     * Checks that entries of the transposition table are read back as stored
+     * and that a full bucket is overwritten according to the policy.
+     */
+    @Test
+    public void testTranspositionTable() {
+        int move = PackedMove.encode(12, 14, 2, 1, true);
+        // keys 5, 5 << 32 and 1 << 32 | 4 fall in the same bucket
+        long a = 5;
+        long b = 5L << 32;
+        long c = 1L << 32 | 4;
+        assertThrows(IllegalArgumentException.class,
+                () -> new TranspositionTable(0, ReplacementPolicy.DEPTH_PREFERRED));
+        TranspositionTable table = new TranspositionTable(1, ReplacementPolicy.DEPTH_PREFERRED);
+        assertEquals(1 << 16, table.getCapacity());
+        assertEquals(0, table.probe(a));
+        table.store(a, 7, TranspositionTable.LOWER, -12.5, move);
+        long entry = table.probe(a);
+        assertEquals(7, TranspositionTable.getDepth(entry));
+        assertEquals(TranspositionTable.LOWER, TranspositionTable.getBound(entry));
+        assertEquals(-12.5, TranspositionTable.getScore(entry));
+        assertEquals(move, TranspositionTable.getMove(entry));
+        table.store(a, 3, TranspositionTable.EXACT, 1, PackedMove.NONE);
+        assertEquals(move, TranspositionTable.getMove(table.probe(a)));
+        // the deep entry stays, shallower ones take turns in the second entry
+        table.store(a, 7, TranspositionTable.EXACT, 1, move);
+        table.store(b, 2, TranspositionTable.EXACT, 2, PackedMove.NONE);
+        table.store(c, 2, TranspositionTable.EXACT, 3, PackedMove.NONE);
+        assertTrue(table.probe(a) != 0);
+        assertEquals(0, table.probe(b));
+        assertEquals(PackedMove.NONE, TranspositionTable.getMove(table.probe(c)));
+        
+        table = new TranspositionTable(1, ReplacementPolicy.ALWAYS_REPLACE);
+        table.store(a, 7, TranspositionTable.EXACT, 1, move);
+        table.store(b, 2, TranspositionTable.EXACT, 2, move);
+        table.store(c, 2, TranspositionTable.EXACT, 3, move);
+        assertEquals(0, table.probe(a));
+        assertEquals(2.0, TranspositionTable.getScore(table.probe(b)));
+        assertEquals(3.0, TranspositionTable.getScore(table.probe(c)));
+    }
+    
+    /**
+     * Checks that the evaluation cache gives back what was stored, counts hits
+     * and misses, and that a strategy with a cache chooses the same moves.
+     */
+    @Test
+    public void testEvaluationCache() {
+        assertThrows(IllegalArgumentException.class, () -> new EvaluationCache(0));
+        EvaluationCache cache = new EvaluationCache(1);
+        assertEquals(1 << 16, cache.getCapacity());
+        double[] factors = advancedStrategy.getFactors();
+        long factorsKey = EvaluationCache.factorsKey(factors);
+        assertEquals(factorsKey, EvaluationCache.factorsKey(factors.clone()));
+        assertTrue(factorsKey != EvaluationCache.factorsKey(
+                ItsOverAnakinIHaveTheHighGroundStrategy.makeFactorsFromString("300;1;1;1")));
+        long key = EvaluationCache.key(board.hash(), factorsKey, Color.WHITE, false);
+        assertTrue(key != EvaluationCache.key(board.hash(), factorsKey, Color.BLACK, false));
+        assertTrue(key != EvaluationCache.key(board.hash(), factorsKey, Color.WHITE, true));
+        assertTrue(Double.isNaN(cache.probe(key)));
+        cache.store(key, -12.5);
+        assertEquals(-12.5, cache.probe(key));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0.5, cache.getHitRate());
+        cache.clear();
+        assertEquals(0, cache.getHits());
+        assertTrue(Double.isNaN(cache.probe(key)));
+        
+        ItsOverAnakinIHaveTheHighGroundStrategy cached = new ItsOverAnakinIHaveTheHighGroundStrategy();
+        cached.setEvaluationCache(cache);
+        Move move = cached.determineMove(board, Color.WHITE);
+        assertEquals(advancedStrategy.determineMove(board, Color.WHITE).toString(), move.toString());
+        long misses = cache.getMisses();
+        assertEquals(move.toString(), cached.determineMove(board, Color.WHITE).toString());
+        assertEquals(misses, cache.getMisses());
+        assertTrue(cache.getHits() > 0);
+    }
+    
+    /**
+     * Checks that a search with helper threads leaves the board as it was,
+     * plays a valid move and counts the nodes of every thread.
+     */
+    @Test
+    public void testAlphaBetaThreads() {
+        String before = board.toString();
+        AlphaBetaStrategy alphaBeta = new AlphaBetaStrategy(3, 0, 0,
+                advancedStrategy.getFactors());
+        ComputerPlayer player = new ComputerPlayer(Color.WHITE, alphaBeta, 4);
+        Move move = player.determineMove(board, "");
+        assertEquals(before, board.toString());
+        assertEquals(MoveStatus.VALID, move.check());
+        assertEquals(4, alphaBeta.getThreads());
+        long[] threadNodes = alphaBeta.getThreadNodes();
+        assertEquals(4, threadNodes.length);
+        assertEquals(alphaBeta.getNodes(), threadNodes[0]);
+        assertTrue(threadNodes[0] > 0);
+    }
+    
+    /**
+     * Checks that tree search with two threads does every playout, leaves the
+     * board as it was and plays a valid move.
+     */
+    @Test
+    public void testMcts() {
+        String before = board.toString();
+        MctsStrategy mcts = new MctsStrategy(300);
+        mcts.setThreads(2);
+        Move move = mcts.determineMove(board, Color.WHITE);
+        assertEquals(before, board.toString());
+        assertEquals(MoveStatus.VALID, move.check());
+        assertEquals(600, mcts.getPlayouts());
+    }
+    
+    /**
+     * Checks the deadlines of a time control and that search strategies keep
+     * to the budget given to determineMove, leaving the board as it was and
+     * playing a valid move.
+     */
+    @Test
+    public void testTimeControl() throws InterruptedException {
+        assertThrows(IllegalArgumentException.class, () -> new SearchLimits(-1, 0));
+        assertTrue(SearchLimits.NONE.isUnlimited());
+        TimeControl clock = new TimeControl(SearchLimits.NONE);
+        assertTrue(clock.canStartIteration(TimeControl.STABLE_ITERATIONS));
+        assertFalse(clock.isHardDeadlinePassed());
+        assertFalse(clock.isNodeLimitReached(Long.MAX_VALUE));
+        clock = new TimeControl(new SearchLimits(10_000, 100));
+        assertTrue(clock.canStartIteration(0));
+        assertFalse(clock.isHardDeadlinePassed());
+        assertFalse(clock.isNodeLimitReached(99));
+        assertTrue(clock.isNodeLimitReached(100));
+        clock = new TimeControl(SearchLimits.ofTime(10));
+        Thread.sleep(20);
+        assertFalse(clock.canStartIteration(0));
+        assertTrue(clock.isHardDeadlinePassed());
+        
+        String before = board.toString();
+        AlphaBetaStrategy alphaBeta = new AlphaBetaStrategy(AlphaBetaStrategy.MAX_DEPTH, 0, 0,
+                advancedStrategy.getFactors());
+        Move move = alphaBeta.determineMove(board, Color.WHITE, SearchLimits.ofTime(100));
+        assertTrue(alphaBeta.getCompletedDepth() >= 1);
+        // stopped by the time control, not by the depth
+        assertTrue(alphaBeta.getCompletedDepth() < AlphaBetaStrategy.MAX_DEPTH);
+        assertEquals(before, board.toString());
+        assertEquals(MoveStatus.VALID, move.check());
+        move = alphaBeta.determineMove(board, Color.WHITE, SearchLimits.ofNodes(300));
+        assertEquals(300, alphaBeta.getNodes());
+        assertEquals(MoveStatus.VALID, move.check());
+        
+        // no limits given: the budget of the strategy applies
+        alphaBeta = new AlphaBetaStrategy(AlphaBetaStrategy.MAX_DEPTH, 0, 250,
+                advancedStrategy.getFactors());
+        move = alphaBeta.determineMove(board, Color.WHITE, SearchLimits.NONE);
+        assertEquals(250, alphaBeta.getNodes());
+        assertEquals(MoveStatus.VALID, move.check());
+        
+        MctsStrategy mcts = new MctsStrategy();
+        move = mcts.determineMove(board, Color.WHITE, SearchLimits.ofNodes(50));
+        assertEquals(50, mcts.getPlayouts());
+        assertEquals(MoveStatus.VALID, move.check());
+        
+        ComputerPlayer player = new ComputerPlayer(Color.WHITE, new AlphaBetaStrategy(
+                AlphaBetaStrategy.MAX_DEPTH, 0, 0, advancedStrategy.getFactors()));
+        player.setSearchLimits(SearchLimits.ofNodes(200));
+        move = player.determineMove(board, null);
+        assertEquals(200, ((AlphaBetaStrategy) player.getStrategy()).getNodes());
+        assertEquals(before, board.toString());
+    }
+    
+    /**
+     * Checks the perft counts of the starting position against the reference
+     * and the counts of positions after random moves.
+     */
+    @Test
+    public void testPerft() {
+        board.setSideToMove(Color.WHITE);
+        String before = board.toString();
+        assertEquals(44, Perft.perft(board, 1));
+        assertEquals(1936, Perft.perft(board, 2));
+        assertEquals(98912, Perft.perft(board, 3));
+        assertEquals(1936, Perft.perftReference(board, 2));
+        long sum = 0;
+        for (long count : Perft.divide(board, 2).values()) {
+            sum += count;
+        }
+        assertEquals(1936, sum);
+        assertEquals(null, Perft.findDifference(board, 2));
+        assertEquals(before, board.toString());
+        
+        // positions with pushes and marbles pushed off
+        IntMoveList list = new IntMoveList();
+        UndoRecord undo = new UndoRecord();
+        Random random = new Random(5);
+        for (int turn = 0; turn < 80; turn++) {
+            MoveGenerator.generate(board, board.getSideToMove(), list);
+            board.makeMove(list.get(random.nextInt(list.size())), undo);
+            if (turn % 20 == 19) {
+                assertEquals(null, Perft.findDifference(board, 1));
+            }
+        }
+    }
+    
+    /**
+     * Checks that a self-play match reports all its games and is won by the
+     * stronger strategy, and that human players are refused.
+     */
+    @Test
+    public void testSelfPlay() {
+        SelfPlayRunner runner = new SelfPlayRunner("RandomStrategy",
+                "ItsOverAnakinIHaveTheHighGroundStrategy", 2, 1);
+        SelfPlayRunner.Report report = runner.run(6);
+        assertEquals(6, report.getGames());
+        assertEquals(6, report.getWins(1) + report.getWins(2) + report.getDraws());
+        assertTrue(report.getWins(2) > report.getWins(1));
+        assertTrue(report.getAverageLength() > 0);
+        try {
+            new SelfPlayRunner("RandomStrategy", "Somebody", 1, 1).run(1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // a human can not play headless
+        }
+    }
+    
+    /**
+     * Checks that a tournament of the simulator with the same seed has the
+     * same winner on one thread and on several.
+     */
+    @Test
+    public void testSimulatorSeed() {
+        double[] factors = {1, 10, 1, 100};
+        Simulator simulator = new Simulator(7, 1);
+        double[] winner = simulator.tournamentRandomElimination(factors, 5);
+        simulator.shutdown();
+        simulator = new Simulator(7, 4);
+        assertArrayEquals(winner, simulator.tournamentRandomElimination(factors, 5));
+        simulator.shutdown();
+    }
 }